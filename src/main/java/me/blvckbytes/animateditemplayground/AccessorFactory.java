@@ -0,0 +1,466 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 BlvckBytes
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.blvckbytes.animateditemplayground;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Turns resolved reflection members into accessors which avoid the access checks and
+ * argument boxing of {@link Field#set} and {@link Method#invoke} on every call.
+ * <p>
+ * Static methods are bound through the {@link LambdaMetafactory}, which spins a class
+ * that calls the target directly. Fields are accessed through exact-typed method handles,
+ * as the metafactory cannot target fields; each accessor kind has it's own class holding
+ * it's handle, which skips access checks and boxing, but, unlike a handle in a static final
+ * field, isn't constant-folded by the JIT. Whenever creating a handle fails, the accessor
+ * falls back to plain reflection, so callers never need to handle both cases.
+ */
+public class AccessorFactory {
+
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  private static final MethodType
+    SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class),
+    GETTER_TYPE = MethodType.methodType(Object.class, Object.class),
+    FUNCTION_TYPE = MethodType.methodType(Object.class, Object.class),
+    PREDICATE_TYPE = MethodType.methodType(boolean.class, Object.class);
+
+  @FunctionalInterface
+  public interface IFieldSetter {
+
+    /**
+     * Set the field's value on a target instance
+     * @param target Instance to set the field on
+     * @param value Value to set
+     */
+    void set(Object target, @Nullable Object value);
+
+  }
+
+  @FunctionalInterface
+  public interface IFieldGetter {
+
+    /**
+     * Get the field's value of a target instance
+     * @param target Instance to get the field of
+     * @return Value of the field
+     */
+    @Nullable Object get(Object target);
+
+  }
+
+  @FunctionalInterface
+  public interface IStaticFunction {
+
+    /**
+     * Invoke the static single-argument method
+     * @param argument Argument to pass
+     * @return Result of the invocation
+     */
+    @Nullable Object apply(@Nullable Object argument);
+
+  }
+
+  @FunctionalInterface
+  public interface IInstanceFunction {
+
+    /**
+     * Invoke the parameterless method on a target instance
+     * @param target Instance to invoke the method on
+     * @return Result of the invocation
+     */
+    @Nullable Object apply(Object target);
+
+  }
+
+  @FunctionalInterface
+  public interface IInstancePredicate {
+
+    /**
+     * Invoke the parameterless boolean method on a target instance, without boxing it's result
+     * @param target Instance to invoke the method on
+     * @return Result of the invocation
+     */
+    boolean test(Object target);
+
+  }
+
+  /**
+   * Create a setter for a non-static field
+   * @param field Field to create a setter for
+   * @return Setter, never null, falling back to reflection if required
+   */
+  public IFieldSetter makeSetter(Field field) {
+    if (Modifier.isStatic(field.getModifiers()))
+      throw new IllegalArgumentException("Setters are only supported on non-static fields");
+
+    try {
+      field.setAccessible(true);
+      return new HandleFieldSetter(LOOKUP.unreflectSetter(field).asType(SETTER_TYPE));
+    } catch (Throwable e) {
+      return new ReflectiveFieldSetter(field);
+    }
+  }
+
+  /**
+   * Create a getter for a non-static field
+   * @param field Field to create a getter for
+   * @return Getter, never null, falling back to reflection if required
+   */
+  public IFieldGetter makeGetter(Field field) {
+    if (Modifier.isStatic(field.getModifiers()))
+      throw new IllegalArgumentException("Getters are only supported on non-static fields");
+
+    try {
+      field.setAccessible(true);
+      return new HandleFieldGetter(LOOKUP.unreflectGetter(field).asType(GETTER_TYPE));
+    } catch (Throwable e) {
+      return new ReflectiveFieldGetter(field);
+    }
+  }
+
+  /**
+   * Create a function for a non-static method without any parameters, like a handle accessor
+   * @param method Method to create a function for
+   * @return Function, never null, falling back to reflection if required
+   */
+  public IInstanceFunction makeInstanceFunction(Method method) {
+    if (Modifier.isStatic(method.getModifiers()) || method.getParameterCount() != 0)
+      throw new IllegalArgumentException("Instance functions are only supported on non-static methods without parameters");
+
+    MethodHandle target;
+
+    try {
+      method.setAccessible(true);
+      target = LOOKUP.unreflect(method);
+    } catch (Throwable e) {
+      return new ReflectiveInstanceFunction(method);
+    }
+
+    IInstanceFunction bound = bindLambda(method, target, IInstanceFunction.class, "apply", FUNCTION_TYPE);
+    return bound != null ? bound : new HandleInstanceFunction(target.asType(FUNCTION_TYPE));
+  }
+
+  /**
+   * Create a predicate for a non-static method without any parameters which returns a primitive boolean
+   * @param method Method to create a predicate for
+   * @return Predicate, never null, falling back to reflection if required
+   */
+  public IInstancePredicate makePredicate(Method method) {
+    if (Modifier.isStatic(method.getModifiers()) || method.getParameterCount() != 0 || method.getReturnType() != boolean.class)
+      throw new IllegalArgumentException("Predicates are only supported on non-static boolean methods without parameters");
+
+    MethodHandle target;
+
+    try {
+      method.setAccessible(true);
+      target = LOOKUP.unreflect(method);
+    } catch (Throwable e) {
+      return new ReflectiveInstancePredicate(method);
+    }
+
+    IInstancePredicate bound = bindLambda(method, target, IInstancePredicate.class, "test", PREDICATE_TYPE);
+    return bound != null ? bound : new HandleInstancePredicate(target.asType(PREDICATE_TYPE));
+  }
+
+  /**
+   * Create a function for a static method taking exactly one argument
+   * @param method Method to create a function for
+   * @return Function, never null, falling back to reflection if required
+   */
+  public IStaticFunction makeStaticFunction(Method method) {
+    if (!Modifier.isStatic(method.getModifiers()) || method.getParameterCount() != 1)
+      throw new IllegalArgumentException("Functions are only supported on static single-argument methods");
+
+    MethodHandle target;
+
+    try {
+      method.setAccessible(true);
+      target = LOOKUP.unreflect(method);
+    } catch (Throwable e) {
+      return new ReflectiveStaticFunction(method);
+    }
+
+    IStaticFunction bound = bindLambda(method, target, IStaticFunction.class, "apply", FUNCTION_TYPE);
+
+    // Access checks have been suppressed on the handle already, so that's always an option
+    return bound != null ? bound : new HandleStaticFunction(target.asType(FUNCTION_TYPE));
+  }
+
+  /**
+   * Bind a method statically by spinning a lambda class, which is only possible if all types
+   * involved are accessible from within this class, as the spun class links directly
+   * @param method Method to bind
+   * @param target Handle of the method
+   * @param type Functional interface to implement
+   * @param name Name of the interface's single method
+   * @param erasedType Erased type of the interface's method
+   * @return Instance of the interface, null if the method cannot be bound statically
+   */
+  private static <T> @Nullable T bindLambda(Method method, MethodHandle target, Class<T> type, String name, MethodType erasedType) {
+    if (!isPubliclyAccessible(method))
+      return null;
+
+    try {
+      CallSite site = LambdaMetafactory.metafactory(
+        LOOKUP, name,
+        MethodType.methodType(type),
+        erasedType, target, target.type()
+      );
+
+      return type.cast(site.getTarget().invoke());
+    } catch (Throwable e) {
+      return null;
+    }
+  }
+
+  private static boolean isPubliclyAccessible(Method method) {
+    if (!Modifier.isPublic(method.getModifiers()))
+      return false;
+
+    if (!isPubliclyAccessible(method.getDeclaringClass()) || !isPubliclyAccessible(method.getReturnType()))
+      return false;
+
+    for (Class<?> parameter : method.getParameterTypes()) {
+      if (!isPubliclyAccessible(parameter))
+        return false;
+    }
+
+    return true;
+  }
+
+  private static boolean isPubliclyAccessible(Class<?> type) {
+    // Walk up enclosing classes, as nested classes are only as accessible as their hosts
+    for (Class<?> current = type; current != null; current = current.getEnclosingClass()) {
+      if (!current.isPrimitive() && !Modifier.isPublic(current.getModifiers()))
+        return false;
+    }
+    return true;
+  }
+
+  ////////////////////////////////// Accessors /////////////////////////////////
+
+  private static RuntimeException rethrow(Throwable e) {
+    if (e instanceof RuntimeException)
+      return (RuntimeException) e;
+
+    if (e instanceof Error)
+      throw (Error) e;
+
+    return new IllegalStateException(e);
+  }
+
+  private static class HandleFieldSetter implements IFieldSetter {
+
+    private final MethodHandle handle;
+
+    private HandleFieldSetter(MethodHandle handle) {
+      this.handle = handle;
+    }
+
+    @Override
+    public void set(Object target, @Nullable Object value) {
+      try {
+        handle.invokeExact(target, value);
+      } catch (Throwable e) {
+        throw rethrow(e);
+      }
+    }
+  }
+
+  private static class ReflectiveFieldSetter implements IFieldSetter {
+
+    private final Field field;
+
+    private ReflectiveFieldSetter(Field field) {
+      this.field = field;
+    }
+
+    @Override
+    public void set(Object target, @Nullable Object value) {
+      try {
+        field.set(target, value);
+      } catch (Throwable e) {
+        throw rethrow(e);
+      }
+    }
+  }
+
+  private static class HandleFieldGetter implements IFieldGetter {
+
+    private final MethodHandle handle;
+
+    private HandleFieldGetter(MethodHandle handle) {
+      this.handle = handle;
+    }
+
+    @Override
+    public @Nullable Object get(Object target) {
+      try {
+        return (Object) handle.invokeExact(target);
+      } catch (Throwable e) {
+        throw rethrow(e);
+      }
+    }
+  }
+
+  private static class ReflectiveFieldGetter implements IFieldGetter {
+
+    private final Field field;
+
+    private ReflectiveFieldGetter(Field field) {
+      this.field = field;
+    }
+
+    @Override
+    public @Nullable Object get(Object target) {
+      try {
+        return field.get(target);
+      } catch (Throwable e) {
+        throw rethrow(e);
+      }
+    }
+  }
+
+  private static class HandleInstanceFunction implements IInstanceFunction {
+
+    private final MethodHandle handle;
+
+    private HandleInstanceFunction(MethodHandle handle) {
+      this.handle = handle;
+    }
+
+    @Override
+    public @Nullable Object apply(Object target) {
+      try {
+        return (Object) handle.invokeExact(target);
+      } catch (Throwable e) {
+        throw rethrow(e);
+      }
+    }
+  }
+
+  private static class ReflectiveInstanceFunction implements IInstanceFunction {
+
+    private final Method method;
+
+    private ReflectiveInstanceFunction(Method method) {
+      this.method = method;
+    }
+
+    @Override
+    public @Nullable Object apply(Object target) {
+      try {
+        return method.invoke(target);
+      } catch (InvocationTargetException e) {
+        throw rethrow(e.getCause());
+      } catch (Throwable e) {
+        throw rethrow(e);
+      }
+    }
+  }
+
+  private static class HandleInstancePredicate implements IInstancePredicate {
+
+    private final MethodHandle handle;
+
+    private HandleInstancePredicate(MethodHandle handle) {
+      this.handle = handle;
+    }
+
+    @Override
+    public boolean test(Object target) {
+      try {
+        return (boolean) handle.invokeExact(target);
+      } catch (Throwable e) {
+        throw rethrow(e);
+      }
+    }
+  }
+
+  private static class ReflectiveInstancePredicate implements IInstancePredicate {
+
+    private final Method method;
+
+    private ReflectiveInstancePredicate(Method method) {
+      this.method = method;
+    }
+
+    @Override
+    public boolean test(Object target) {
+      try {
+        return (boolean) method.invoke(target);
+      } catch (InvocationTargetException e) {
+        throw rethrow(e.getCause());
+      } catch (Throwable e) {
+        throw rethrow(e);
+      }
+    }
+  }
+
+  private static class HandleStaticFunction implements IStaticFunction {
+
+    private final MethodHandle handle;
+
+    private HandleStaticFunction(MethodHandle handle) {
+      this.handle = handle;
+    }
+
+    @Override
+    public @Nullable Object apply(@Nullable Object argument) {
+      try {
+        return (Object) handle.invokeExact(argument);
+      } catch (Throwable e) {
+        throw rethrow(e);
+      }
+    }
+  }
+
+  private static class ReflectiveStaticFunction implements IStaticFunction {
+
+    private final Method method;
+
+    private ReflectiveStaticFunction(Method method) {
+      this.method = method;
+    }
+
+    @Override
+    public @Nullable Object apply(@Nullable Object argument) {
+      try {
+        return method.invoke(null, argument);
+      } catch (InvocationTargetException e) {
+        throw rethrow(e.getCause());
+      } catch (Throwable e) {
+        throw rethrow(e);
+      }
+    }
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 BlvckBytes
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.blvckbytes.animateditemplayground;
+
+import java.awt.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Guards the rendering hot path against allocation regressions by measuring the bytes
+ * allocated per operation on representative inputs and failing if any ceiling is exceeded.
+ * <p>
+ * Runs against the compiled classes in the {@code prepare-package} phase of every build,
+ * before the jar is shaded and copied out, unless skipped through
+ * {@code -Dallocation.check.skip}. It's excluded from the shaded jar. Ceilings default
+ * to the values below and can be overridden by system properties of the format
+ * {@code allocation.ceiling.<name>}, in bytes per operation.
+ */
+public class AllocationBudgetCheck {
+
+  private static final int WARMUP_ITERATIONS = 20_000, MEASURED_ITERATIONS = 50_000;
+
+  private static final String FRAME_TEXT = "FancyItem | Player123";
+  private static final String FRAME_TEMPLATE = "FancyItem | {player}";
+  private static final String LEGACY_TEXT = "§7Owner: §a<#FE4800:0 #FDFC00:.5 #FE4800:1>Player123 §r§l§nBold §cred §#3A8FEEhex";
+
+  @FunctionalInterface
+  private interface IOperation {
+
+    /**
+     * Run the operation once
+     * @param iteration Current iteration, to vary the input
+     * @return Any number derived from the result, which is consumed to keep the operation
+     *         from being eliminated, as returning objects could box and thereby allocate
+     */
+    long run(int iteration);
+
+  }
+
+  private static class Check {
+    final String name;
+    final long defaultCeiling;
+    final IOperation operation;
+
+    private Check(String name, long defaultCeiling, IOperation operation) {
+      this.name = name;
+      this.defaultCeiling = defaultCeiling;
+      this.operation = operation;
+    }
+  }
+
+  private final com.sun.management.ThreadMXBean threadBean;
+  private final long threadId;
+
+  // Consumes results, so that the JIT can't prove them unused
+  private long sink;
+  private Object retained;
+
+  private AllocationBudgetCheck(com.sun.management.ThreadMXBean threadBean) {
+    this.threadBean = threadBean;
+    this.threadId = Thread.currentThread().getId();
+  }
+
+  public static void main(String[] args) {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+    if (!(bean instanceof com.sun.management.ThreadMXBean) || !((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported())
+      throw new IllegalStateException("This JVM doesn't support measuring thread allocations");
+
+    new AllocationBudgetCheck((com.sun.management.ThreadMXBean) bean).run();
+  }
+
+  private void run() {
+    GradientGenerator generator = new GradientGenerator();
+
+    List<GradientPoint> points = new ArrayList<>();
+    points.add(new GradientPoint(new Color(0xFE4800), 0));
+    points.add(new GradientPoint(new Color(0xFDFC00), .5));
+    points.add(new GradientPoint(new Color(0xFE4800), 1));
+
+    CompiledGradient gradient = CompiledGradient.compile(points, GradientInterpolation.OKLAB);
+
+    List<Check> checks = new ArrayList<>();
+
+    // A whole frame, from gradientizing up to the serialized JSON
+    checks.add(new Check("frame", 40_960, i -> {
+      gradient.setOffset(1, .1 + (i % 80) / 100D);
+      TextComponent component = generator.gradientize(FRAME_TEXT, gradient);
+      component.toggleFormatting(TextFormatting.BOLD, true);
+      return component.toJson(false).toString().length();
+    }));
+
+    // A whole frame as rendered by the plugin, through a template serializing into an arena's builders
+    AnimatedTextTemplate template = AnimatedTextTemplate.compile(FRAME_TEMPLATE);
+    template.toggleFormatting(TextFormatting.BOLD, true);
+    String[] values = { "Player123" };
+    RenderArena arena = new RenderArena();
+
+    checks.add(new Check("template-frame", 8_192, i -> {
+      arena.beginTick();
+      template.beginTick();
+      gradient.setOffset(1, .1 + (i % 80) / 100D);
+      return template.render(gradient, values, RenderBudget.UNLIMITED, null, arena).getJsonString(ClientCapability.HEX_COLORS).length();
+    }));
+
+    checks.add(new Check("gradient-point", 64, i -> generator.getGradientPoint(points, (i % 1000) / 1000D).getRGB()));
+
+    // Packed sampling has been allocation-free from the start, keep it that way
+    checks.add(new Check("compiled-sample", 0, i -> gradient.sample((i % 1000) / 1000D)));
+
+    checks.add(new Check("parse", 4_096, i -> {
+      // Retain the tree, as escape analysis could otherwise elide most of it
+      retained = TextComponent.parseFromText(LEGACY_TEXT, generator);
+      return 1;
+    }));
+
+    List<String> violations = new ArrayList<>();
+
+    for (Check check : checks) {
+      long ceiling = Long.getLong("allocation.ceiling." + check.name, check.defaultCeiling);
+      long bytesPerOperation = measure(check.operation);
+
+      System.out.printf("%-16s %8d bytes/op (ceiling %d)%n", check.name, bytesPerOperation, ceiling);
+
+      if (bytesPerOperation > ceiling)
+        violations.add(check.name + " allocated " + bytesPerOperation + " bytes/op, exceeding it's ceiling of " + ceiling);
+    }
+
+    if (!violations.isEmpty())
+      throw new IllegalStateException("Allocation ceilings exceeded:\n" + String.join("\n", violations));
+
+    System.out.println("All allocation ceilings met (" + sink + ")");
+  }
+
+  private long measure(IOperation operation) {
+    // Let the JIT compile and apply escape analysis before measuring
+    for (int i = 0; i < WARMUP_ITERATIONS; i++)
+      sink += operation.run(i);
+
+    long before = threadBean.getThreadAllocatedBytes(threadId);
+
+    for (int i = 0; i < MEASURED_ITERATIONS; i++)
+      sink += operation.run(i);
+
+    return (threadBean.getThreadAllocatedBytes(threadId) - before) / MEASURED_ITERATIONS;
+  }
+}
@@ -62,6 +62,7 @@ public class AnimatedItemPlayground extends JavaPlugin {
       }, IReflectionHelper::cleanupInterception)
       .addSingleton(CommandRegisterer.class)
       .addSingleton(PluginFileHandler.class)
+      .addSingleton(ClientCapabilityRegistry.class)
       .addSingleton(AnimatedItemTest.class)
       .addSingleton(FakeSlotCommunicator.class)
       .addSingleton(PacketInterceptorRegistry.class)
@@ -25,7 +25,8 @@
 package me.blvckbytes.animateditemplayground;
 
 import com.google.gson.JsonElement;
-import lombok.AllArgsConstructor;
+import me.blvckbytes.animateditemplayground.AccessorFactory.IFieldGetter;
+import me.blvckbytes.animateditemplayground.AccessorFactory.IFieldSetter;
 import me.blvckbytes.autowirer.ICleanable;
 import me.blvckbytes.autowirer.IInitializable;
 import me.blvckbytes.bbreflect.IReflectionHelper;
@@ -34,152 +35,452 @@ import me.blvckbytes.bbreflect.handle.ClassHandle;
 import me.blvckbytes.bbreflect.handle.FieldHandle;
 import me.blvckbytes.bbreflect.handle.MethodHandle;
 import me.blvckbytes.bbreflect.handle.predicate.Assignability;
+import me.blvckbytes.bukkitboilerplate.ILogger;
+import org.jetbrains.annotations.Nullable;
 import org.bukkit.Bukkit;
-import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
-import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.scheduler.BukkitTask;
 
 import java.awt.*;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 public class AnimatedItemTest implements Listener, IInitializable, ICleanable {
 
   private static final long PERIOD = 1;
-  private static final double STEP_SIZE = 0.03, EDGE_STOP = .12;
+  private static final String REFLECTION_CACHE_FILE = "reflection-cache.properties";
+  private static final String CHANNEL_CLASS_NAME = "io.netty.channel.Channel";
   private static final Color CENTER = new Color(253, 252, 0), AROUND = new Color(254, 72, 0);
-  private static final GradientPoint BEGINNING = new GradientPoint(AROUND, 0.0), END = new GradientPoint(AROUND, 1.0);
+  private static final int CENTER_STOP = 1;
 
-  private final FieldHandle F_CRAFT_META_ITEM__NAME_BASE_COMPONENT, F_CRAFT_META_ITEM__NAME_STRING;
-  private final MethodHandle M_CHAT_SERIALIZER__FROM_JSON;
+  // Bandwidth-vs-fidelity knob, limiting the colored segments per frame
+  private static final RenderBudget FRAME_BUDGET = RenderBudget.UNLIMITED;
 
-  @AllArgsConstructor
-  private static class AnimationState {
-    List<GradientPoint> colors;
-    boolean forwards;
-  }
+  // Number of phase buckets of a clock shared by all players, so that all players of a bucket
+  // share the colors and static segments of their frames; zero to have each player run their own phase
+  private static final int SHARED_CLOCK_BUCKETS = 8;
 
-  private final Map<Player, AnimationState> animations;
-  private final Plugin plugin;
-  private final GradientGenerator gradientGenerator;
+  // Animation bandwidth of each player, frames beyond are dropped; the burst has to fit the largest frame
+  private static final int PLAYER_BYTES_PER_SECOND = 32 * 1024, PLAYER_BURST_BYTES = 4 * 1024;
+
+  // Targets every player is shown their animation on, which all draw from the same frames;
+  // ActionBarRenderTarget, BossBarRenderTarget and ScoreboardTitleRenderTarget may be added
+  private final IRenderTarget[] renderTargets;
+
+  // Animation id 0 sweeps the center color back and forth, more can be added here
+  private static final int SWEEP_ANIMATION = 0;
+
+  // Gradient of each animation id, which only has it's center's offset moved per frame
+  private final CompiledGradient[] animationGradients;
+
+  private final AnimationStateStore animations;
 
-  private BukkitTask task;
+  // Quits happen on the main thread, while the store is only ever touched by the animation task
+  private final Queue<UUID> pendingReleases;
 
-  public AnimatedItemTest(Plugin plugin, IReflectionHelper reflectionHelper) throws Exception {
+  // Players to animate, maintained by join and quit events, so that rendering never has to
+  // ask the server for it's player list from off the main thread
+  private final Map<UUID, Player> players;
+
+  // Clock all players follow, null if each player runs their own phase
+  private final @Nullable AnimationClock clock;
+  private final Plugin plugin;
+  private final GradientGenerator gradientGenerator;
+  private final ClientCapabilityRegistry capabilityRegistry;
+  private final FrameCache frameCache;
+
+  // Pools the components of frames rendered within a limited budget, reset along with the frame cache
+  private final RenderArena renderArena;
+  private final BandwidthLimiter bandwidthLimiter;
+  private final ChannelWritabilityProbe writabilityProbe;
+  private final AnimatedTextTemplate nameTemplate;
+  private final int playerPlaceholder;
+
+  private @Nullable BukkitTask task;
+
+  public AnimatedItemTest(
+    Plugin plugin,
+    IReflectionHelper reflectionHelper,
+    ClientCapabilityRegistry capabilityRegistry,
+    ILogger logger
+  ) throws Exception {
     this.plugin = plugin;
+    this.capabilityRegistry = capabilityRegistry;
     this.gradientGenerator = new GradientGenerator();
-    this.animations = new HashMap<>();
+    this.frameCache = new FrameCache();
+    this.renderArena = new RenderArena();
+    this.bandwidthLimiter = new BandwidthLimiter(PLAYER_BYTES_PER_SECOND, PLAYER_BURST_BYTES);
+    this.nameTemplate = AnimatedTextTemplate.compile("FancyItem | {player}");
+    this.nameTemplate.toggleFormatting(TextFormatting.BOLD, true);
+    this.playerPlaceholder = nameTemplate.getPlaceholderIndex("player");
+    this.animations = new AnimationStateStore();
+    this.pendingReleases = new ConcurrentLinkedQueue<>();
+    this.players = new ConcurrentHashMap<>();
+
+    this.clock = SHARED_CLOCK_BUCKETS > 0 ? new AnimationClock(SHARED_CLOCK_BUCKETS, SweepAnimation.CYCLE_TICKS) : null;
+    this.animationGradients = new CompiledGradient[] { makeSweepGradient() };
+
+    ReflectionCache reflectionCache = new ReflectionCache(
+      new File(plugin.getDataFolder(), REFLECTION_CACHE_FILE),
+      String.valueOf(reflectionHelper.getVersion()),
+      Bukkit.getServer().getClass(),
+      plugin.getDescription().getVersion(),
+      logger
+    );
+
+    Field nameBaseComponent = reflectionCache.field("CraftMetaItem#name:IChatBaseComponent", () -> {
+      ClassHandle C_CRAFT_META_ITEM = reflectionHelper.getClass(RClass.CRAFT_META_ITEM);
+      ClassHandle C_BASE_COMPONENT  = reflectionHelper.getClass(RClass.I_CHAT_BASE_COMPONENT);
+      return unwrap(C_CRAFT_META_ITEM.locateField().withType(C_BASE_COMPONENT).optional());
+    });
+
+    Field nameString = reflectionCache.field("CraftMetaItem#name:String", () -> {
+      ClassHandle C_CRAFT_META_ITEM = reflectionHelper.getClass(RClass.CRAFT_META_ITEM);
+      return unwrap(C_CRAFT_META_ITEM.locateField().withType(String.class).optional());
+    });
+
+    Method fromJson = reflectionCache.method("ChatSerializer#fromJson(JsonElement)", () -> {
+      ClassHandle C_CHAT_SERIALIZER = reflectionHelper.getClass(RClass.CHAT_SERIALIZER);
+      ClassHandle C_BASE_COMPONENT  = reflectionHelper.getClass(RClass.I_CHAT_BASE_COMPONENT);
+      return unwrap(C_CHAT_SERIALIZER.locateMethod().withParameters(JsonElement.class).withReturnType(C_BASE_COMPONENT, false, Assignability.TYPE_TO_TARGET).withStatic(true).required());
+    });
+
+    Field itemStackHandle = reflectionCache.field("CraftItemStack#handle:ItemStack", () -> {
+      ClassHandle C_CRAFT_ITEM_STACK = reflectionHelper.getClass(RClass.CRAFT_ITEM_STACK);
+      ClassHandle C_ITEM_STACK       = reflectionHelper.getClass(RClass.ITEM_STACK);
+      return unwrap(C_CRAFT_ITEM_STACK.locateField().withType(C_ITEM_STACK).optional());
+    });
+
+    Field itemStackTag = reflectionCache.field("ItemStack#tag:NBTTagCompound", () -> {
+      ClassHandle C_ITEM_STACK       = reflectionHelper.getClass(RClass.ITEM_STACK);
+      ClassHandle C_NBT_TAG_COMPOUND = reflectionHelper.getClass(RClass.NBT_TAG_COMPOUND);
+      return unwrap(C_ITEM_STACK.locateField().withType(C_NBT_TAG_COMPOUND).optional());
+    });
+
+    Field compoundMap = reflectionCache.field("NBTTagCompound#map:Map", () -> {
+      ClassHandle C_NBT_TAG_COMPOUND = reflectionHelper.getClass(RClass.NBT_TAG_COMPOUND);
+      return unwrap(C_NBT_TAG_COMPOUND.locateField().withType(Map.class).optional());
+    });
+
+    Method stringValueOf = reflectionCache.method("NBTTagString#valueOf(String)", () -> {
+      ClassHandle C_NBT_TAG_STRING = reflectionHelper.getClass(RClass.NBT_TAG_STRING);
+      return unwrap(C_NBT_TAG_STRING.locateMethod().withParameters(String.class).withReturnType(C_NBT_TAG_STRING, false, Assignability.TYPE_TO_TARGET).withStatic(true).optional());
+    });
+
+    Method getHandle = reflectionCache.method("CraftPlayer#getHandle():EntityPlayer", () -> {
+      ClassHandle C_CRAFT_PLAYER   = reflectionHelper.getClass(RClass.CRAFT_PLAYER);
+      ClassHandle C_ENTITY_PLAYER  = reflectionHelper.getClass(RClass.ENTITY_PLAYER);
+      return unwrap(C_CRAFT_PLAYER.locateMethod().withParameters().withReturnType(C_ENTITY_PLAYER, false, Assignability.TYPE_TO_TARGET).withStatic(false).optional());
+    });
+
+    Field playerConnection = reflectionCache.field("EntityPlayer#playerConnection:PlayerConnection", () -> {
+      ClassHandle C_ENTITY_PLAYER     = reflectionHelper.getClass(RClass.ENTITY_PLAYER);
+      ClassHandle C_PLAYER_CONNECTION = reflectionHelper.getClass(RClass.PLAYER_CONNECTION);
+      return unwrap(C_ENTITY_PLAYER.locateField().withType(C_PLAYER_CONNECTION).optional());
+    });
+
+    Field networkManager = reflectionCache.field("PlayerConnection#networkManager:NetworkManager", () -> {
+      ClassHandle C_PLAYER_CONNECTION = reflectionHelper.getClass(RClass.PLAYER_CONNECTION);
+      ClassHandle C_NETWORK_MANAGER   = reflectionHelper.getClass(RClass.NETWORK_MANAGER);
+      return unwrap(C_PLAYER_CONNECTION.locateField().withType(C_NETWORK_MANAGER).optional());
+    });
+
+    Class<?> channelClass = findClass(CHANNEL_CLASS_NAME);
+
+    Field channel = channelClass == null ? null : reflectionCache.field("NetworkManager#channel:Channel", () -> {
+      ClassHandle C_NETWORK_MANAGER = reflectionHelper.getClass(RClass.NETWORK_MANAGER);
+      return unwrap(C_NETWORK_MANAGER.locateField().withType(channelClass).optional());
+    });
+
+    reflectionCache.complete();
+
+    if (fromJson == null)
+      throw new IllegalStateException("Could not resolve ChatSerializer#fromJson");
+
+    // Bind the hot-path members to accessors once, instead of reflecting on every frame
+    AccessorFactory accessorFactory = new AccessorFactory();
+    IRenderTarget itemName = new ItemNameRenderTarget(
+      makeSetter(accessorFactory, nameBaseComponent),
+      makeSetter(accessorFactory, nameString),
+      accessorFactory.makeStaticFunction(fromJson),
+      makeDirectNameWriter(accessorFactory, itemStackHandle, itemStackTag, compoundMap, stringValueOf)
+    );
+
+    this.renderTargets = new IRenderTarget[] { itemName };
+
+    this.writabilityProbe = new ChannelWritabilityProbe(
+      logger,
+      getHandle == null ? null : accessorFactory.makeInstanceFunction(getHandle),
+      makeGetter(accessorFactory, playerConnection),
+      makeGetter(accessorFactory, networkManager),
+      makeGetter(accessorFactory, channel),
+      channelClass == null ? null : accessorFactory.makePredicate(channelClass.getMethod("isWritable"))
+    );
+  }
 
-    ClassHandle C_CHAT_SERIALIZER  = reflectionHelper.getClass(RClass.CHAT_SERIALIZER);
-    ClassHandle C_BASE_COMPONENT   = reflectionHelper.getClass(RClass.I_CHAT_BASE_COMPONENT);
-    ClassHandle C_CRAFT_META_ITEM  = reflectionHelper.getClass(RClass.CRAFT_META_ITEM);
+  private static @Nullable IFieldSetter makeSetter(AccessorFactory factory, @Nullable Field field) {
+    return field == null ? null : factory.makeSetter(field);
+  }
 
-    F_CRAFT_META_ITEM__NAME_BASE_COMPONENT = C_CRAFT_META_ITEM.locateField().withType(C_BASE_COMPONENT).optional();
-    F_CRAFT_META_ITEM__NAME_STRING         = C_CRAFT_META_ITEM.locateField().withType(String.class).optional();
-    M_CHAT_SERIALIZER__FROM_JSON = C_CHAT_SERIALIZER.locateMethod().withParameters(JsonElement.class).withReturnType(C_BASE_COMPONENT, false, Assignability.TYPE_TO_TARGET).withStatic(true).required();
+  private static @Nullable IFieldGetter makeGetter(AccessorFactory factory, @Nullable Field field) {
+    return field == null ? null : factory.makeGetter(field);
   }
 
-  private void updateAnimation(Player p) {
-    AnimationState state = animations.get(p);
-    boolean existed = state != null;
+  private static @Nullable Class<?> findClass(String name) {
+    try {
+      return Class.forName(name, false, Bukkit.getServer().getClass().getClassLoader());
+    } catch (ClassNotFoundException e) {
+      return null;
+    }
+  }
 
-    if (!existed) {
-      List<GradientPoint> colors = new ArrayList<>();
+  /**
+   * Create a direct item name writer, if all members of it's chain are present on this version
+   */
+  private static @Nullable DirectItemNameWriter makeDirectNameWriter(
+    AccessorFactory factory,
+    @Nullable Field handle,
+    @Nullable Field tag,
+    @Nullable Field map,
+    @Nullable Method stringValueOf
+  ) {
+    if (handle == null || tag == null || map == null || stringValueOf == null)
+      return null;
+
+    return new DirectItemNameWriter(
+      handle.getDeclaringClass(), tag.getType(),
+      factory.makeGetter(handle), factory.makeGetter(tag), factory.makeGetter(map),
+      factory.makeStaticFunction(stringValueOf)
+    );
+  }
 
-      colors.add(BEGINNING);
-      colors.add(new GradientPoint(CENTER, .5));
-      colors.add(END);
+  private static @Nullable Field unwrap(@Nullable FieldHandle handle) {
+    if (handle == null)
+      return null;
 
-      state = new AnimationState(colors, true);
-    }
+    Field field = handle.getHandle();
+    field.setAccessible(true);
+    return field;
+  }
 
-    playAnimationFrame(p, state);
-    advanceAnimation(state);
+  private static @Nullable Method unwrap(@Nullable MethodHandle handle) {
+    if (handle == null)
+      return null;
 
-    if (!existed)
-      animations.put(p, state);
+    Method method = handle.getHandle();
+    method.setAccessible(true);
+    return method;
   }
 
-  private void playAnimationFrame(Player p, AnimationState state) {
-    try {
-      String text = "FancyItem | " + p.getName();
+  private static CompiledGradient makeSweepGradient() {
+    // Stop colors are converted once here, frames only move the center's offset
+    CompiledGradient colors = new CompiledGradient(3);
+    colors.setInterpolation(GradientInterpolation.OKLAB);
 
-      TextComponent comp = gradientGenerator.gradientize(text, state.colors);
-      comp.toggleFormatting(TextFormatting.BOLD, true);
+    colors.addStop(AROUND.getRGB() & 0xFFFFFF, 0.0);
+    colors.addStop(CENTER.getRGB() & 0xFFFFFF, .5);
+    colors.addStop(AROUND.getRGB() & 0xFFFFFF, 1.0);
 
-      JsonElement colorJson = comp.toJson(false);
-      ItemStack itemInHand = p.getInventory().getItemInMainHand();
+    return colors;
+  }
 
-      if (itemInHand.getType().isAir()) {
-        itemInHand = new ItemStack(Material.DIAMOND_SWORD);
-        p.getInventory().setItemInMainHand(itemInHand);
-      }
+  private void updateAnimation(Player p) {
+    int slot = animations.getSlot(p.getUniqueId());
 
-      ItemMeta meta = itemInHand.getItemMeta();
+    if (slot < 0) {
+      slot = animations.acquire(p.getUniqueId(), SWEEP_ANIMATION, .5, AnimationStateStore.FORWARDS);
 
-      if (meta == null)
-        throw new IllegalStateException("Could not get the item's meta");
+      if (clock != null)
+        animations.setClockBucket(slot, clock.getBucket(p.getUniqueId()));
 
-      if (F_CRAFT_META_ITEM__NAME_STRING != null)
-        F_CRAFT_META_ITEM__NAME_STRING.set(meta, colorJson.toString());
+      // A player's name doesn't change while online, so the text is only resolved once per session
+      String[] values = new String[nameTemplate.getPlaceholderNames().size()];
+      values[playerPlaceholder] = p.getName();
+      animations.setPlaceholderValues(slot, values, nameTemplate.resolve(values));
+    }
 
-      if (F_CRAFT_META_ITEM__NAME_BASE_COMPONENT != null)
-        F_CRAFT_META_ITEM__NAME_BASE_COMPONENT.set(meta, M_CHAT_SERIALIZER__FROM_JSON.invoke(null, colorJson));
+    // Players on the shared clock take their bucket's phase, which the clock advances for all of them
+    if (clock != null)
+      animations.setPhase(slot, SweepAnimation.phaseAt(clock.getTick(animations.getClockBucket(slot))));
 
-      itemInHand.setItemMeta(meta);
-    } catch (Exception e) {
-      e.printStackTrace();
+    PipelineEvents.UpdateAnimation event = new PipelineEvents.UpdateAnimation();
+    event.begin();
+
+    int missesBefore = frameCache.getMisses();
+    int textLength = playAnimationFrame(p, slot);
+
+    // Players on the shared clock are advanced by the clock instead
+    if (clock == null)
+      advanceAnimation(slot);
+
+    if (event.shouldCommit()) {
+      event.textLength = textLength;
+      event.stopCount = animationGradients[animations.getAnimationId(slot)].size();
+      event.cacheHit = frameCache.getMisses() == missesBefore;
+      event.commit();
     }
   }
 
-  private void advanceAnimation(AnimationState state) {
-    if (state.colors.size() != 3)
-      return;
+  /**
+   * Play the current frame of a player's animation
+   * @return Length of the frame's text
+   */
+  private int playAnimationFrame(Player p, int slot) {
+    int textLength = 0;
 
-    GradientPoint target = state.colors.get(1);
+    try {
+      // The store only keeps the phase, which is applied to the animation's shared gradient
+      CompiledGradient colors = animationGradients[animations.getAnimationId(slot)];
+      colors.setOffset(CENTER_STOP, animations.getPhase(slot));
+
+      // Both have been set when acquiring the slot
+      String[] values = animations.getPlaceholderValues(slot);
+      String text = animations.getResolvedText(slot);
+      assert values != null && text != null;
+
+      // The static text is rendered once per position, only the player's name varies
+      textLength = text.length();
+
+      RenderedFrame frame = frameCache.getOrRender(text, colors, () -> (
+        nameTemplate.render(colors, values, FRAME_BUDGET, gradientGenerator, renderArena)
+      ));
+
+      // Rendered at most once per capability class and frame, shared by all players within
+      ClientCapability capability = capabilityRegistry.getCapability(p);
+      String colorJsonString = frame.getJsonString(capability);
+
+      PipelineEvents.Delivery delivery = new PipelineEvents.Delivery();
+      delivery.begin();
+
+      // The player already sees this exact frame, a switched item is picked up by the next one.
+      // Shared frames hand out the same string, which equals compares by identity first.
+      boolean skipped = colorJsonString.equals(animations.getLastFrame(slot));
+      boolean dropped = false;
+      int wireLength = 0;
+
+      if (!skipped) {
+        // Cosmetic frames must never queue up in front of gameplay packets, so they're dropped
+        // while the connection lags behind or the player's bandwidth is used up. The phase
+        // advances regardless and the last frame is kept, so the next frame catches up.
+        // The encoded bytes are only measured here, delivery still goes through the item.
+        wireLength = frame.getWireLength(capability) * renderTargets.length;
+        dropped = !writabilityProbe.isWritable(p) || !bandwidthLimiter.tryAcquire(animations, slot, wireLength, System.nanoTime());
+
+        if (dropped)
+          animations.addDroppedFrame(slot);
+
+        else {
+          animations.setLastFrame(slot, colorJsonString);
+
+          for (IRenderTarget target : renderTargets)
+            target.show(p, frame, capability);
+        }
+      }
 
-    if (state.forwards) {
-      if (target.offset + EDGE_STOP >= 1)
-        state.forwards = false;
-      updateGradient(state);
+      if (delivery.shouldCommit()) {
+        delivery.player = p.getUniqueId().toString();
+        delivery.jsonLength = colorJsonString.length();
+        delivery.wireLength = wireLength;
+        delivery.sentBytes = animations.getSentBytes(slot);
+        delivery.droppedFrames = animations.getDroppedFrames(slot);
+        delivery.skipped = skipped;
+        delivery.dropped = dropped;
+        delivery.commit();
+      }
+    } catch (Exception e) {
+      e.printStackTrace();
     }
 
-    else {
-      if (target.offset - EDGE_STOP <= 0)
-        state.forwards = true;
-      updateGradient(state);
-    }
+    return textLength;
   }
 
-  private void updateGradient(AnimationState state) {
-    GradientPoint center = state.colors.get(1);
-    center.offset = center.offset + STEP_SIZE * (state.forwards ? 1 : -1);
+  private void advanceAnimation(int slot) {
+    double phase = animations.getPhase(slot);
+    byte direction = SweepAnimation.turn(phase, animations.getDirection(slot));
+
+    animations.setDirection(slot, direction);
+    animations.setPhase(slot, SweepAnimation.step(phase, direction));
   }
 
   @Override
   public void cleanup() {
     if (task != null)
       task.cancel();
+
+    // Bars and replaced scoreboards would otherwise outlive the plugin
+    for (Player p : players.values()) {
+      for (IRenderTarget target : renderTargets)
+        target.clear(p);
+    }
   }
 
   @Override
   public void initialize() {
-    task = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, () -> {
-      for (Player p : Bukkit.getOnlinePlayers())
-        updateAnimation(p);
-    }, 0L, PERIOD);
+    // Players who joined before the plugin has been enabled
+    for (Player p : Bukkit.getOnlinePlayers())
+      players.put(p.getUniqueId(), p);
+
+    task = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, this::runFrame, 0L, PERIOD);
+  }
+
+  /**
+   * Render and deliver a frame to all players
+   */
+  private void runFrame() {
+    PipelineEvents.AnimationTick event = new PipelineEvents.AnimationTick();
+    event.begin();
+
+    // Frames are dropped before the arena takes back the builders they serialize into
+    frameCache.beginTick();
+    renderArena.beginTick();
+    nameTemplate.beginTick();
+
+    // Released here, as the previous frame may still have rendered for players who quit meanwhile
+    for (UUID released; (released = pendingReleases.poll()) != null;) {
+      animations.release(released);
+      capabilityRegistry.release(released);
+    }
+
+    int playerCount = 0;
+    for (Player p : players.values()) {
+      updateAnimation(p);
+      playerCount++;
+    }
+
+    if (clock != null)
+      clock.advance();
+
+    if (event.shouldCommit()) {
+      event.playerCount = playerCount;
+      event.cacheHits = frameCache.getHits();
+      event.cacheMisses = frameCache.getMisses();
+      event.commit();
+    }
+  }
+
+  @EventHandler
+  public void onJoin(PlayerJoinEvent event) {
+    this.players.put(event.getPlayer().getUniqueId(), event.getPlayer());
   }
 
   @EventHandler
   public void onQuit(PlayerQuitEvent event) {
-    this.animations.remove(event.getPlayer());
+    this.players.remove(event.getPlayer().getUniqueId());
+
+    for (IRenderTarget target : renderTargets)
+      target.clear(event.getPlayer());
+
+    this.pendingReleases.add(event.getPlayer().getUniqueId());
   }
 }
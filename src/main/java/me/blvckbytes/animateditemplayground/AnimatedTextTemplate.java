@@ -0,0 +1,487 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 BlvckBytes
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.blvckbytes.animateditemplayground;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Text with placeholders of format {@code {name}}, which is compiled into static and dynamic
+ * segments, so that a gradient can be applied to the whole resolved text while only rendering
+ * each segment once per tick for every distinct value and position it occurs at.
+ * <p>
+ * As the color of a character depends on it's position relative to the resolved text's length,
+ * static segments are shared between all resolutions of equal length. Rendering thereby scales
+ * with the number of distinct placeholder values, not with the number of resolutions.
+ * Instances are meant to be used by a single render thread.
+ */
+public class AnimatedTextTemplate {
+
+  /**
+   * Rendered characters of a single segment at a given position within the whole text
+   */
+  private static class SegmentKey {
+    String text;
+    int offset, totalLength;
+    CompiledGradient gradient;
+
+    private SegmentKey(String text, int offset, int totalLength, CompiledGradient gradient) {
+      this.text = text;
+      this.offset = offset;
+      this.totalLength = totalLength;
+      this.gradient = gradient;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof SegmentKey))
+        return false;
+
+      SegmentKey key = (SegmentKey) other;
+      return (
+        offset == key.offset && totalLength == key.totalLength &&
+        text.equals(key.text) && gradient.equals(key.gradient)
+      );
+    }
+
+    @Override
+    public int hashCode() {
+      int result = text.hashCode();
+      result = 31 * result + offset;
+      result = 31 * result + totalLength;
+      return 31 * result + gradient.hashCode();
+    }
+  }
+
+  private static class RenderedSegment {
+    final String text;
+
+    // Colors of the whole text, of which this segment starts at the offset
+    final String[] hexColors;
+    final int offset;
+
+    // Per-character JSON elements and their serialized, comma-separated fragment, rendered lazily per capability
+    final JsonObject[][] elements;
+    final String[] fragments;
+
+    private RenderedSegment(String text, String[] hexColors, int offset) {
+      this.text = text;
+      this.hexColors = hexColors;
+      this.offset = offset;
+      this.elements = new JsonObject[ClientCapability.values.length][];
+      this.fragments = new String[ClientCapability.values.length];
+    }
+
+    private String getFragment(ClientCapability capability) {
+      String result = fragments[capability.ordinal()];
+
+      if (result != null)
+        return result;
+
+      // Written directly, as serializing the elements would first build all of them
+      StringBuilder fragment = new StringBuilder(text.length() * ELEMENT_JSON_LENGTH);
+
+      for (int i = 0; i < text.length(); i++) {
+        String color = hexColors[offset + i];
+
+        if (capability.isApproximatingColors())
+          color = TextComponent.translateColor(color);
+
+        if (i != 0)
+          fragment.append(',');
+
+        fragment.append("{\"text\":\"");
+        appendJsonChar(fragment, text.charAt(i));
+        fragment.append('"');
+
+        if (color != null)
+          fragment.append(",\"color\":\"").append(color).append('"');
+
+        fragment.append('}');
+      }
+
+      result = fragment.toString();
+      fragments[capability.ordinal()] = result;
+      return result;
+    }
+
+    private JsonObject[] getElements(ClientCapability capability) {
+      JsonObject[] result = elements[capability.ordinal()];
+
+      if (result != null)
+        return result;
+
+      result = new JsonObject[text.length()];
+
+      for (int i = 0; i < result.length; i++) {
+        String color = hexColors[offset + i];
+
+        JsonObject element = new JsonObject();
+        element.addProperty("text", String.valueOf(text.charAt(i)));
+
+        if (capability.isApproximatingColors())
+          color = TextComponent.translateColor(color);
+
+        if (color != null)
+          element.addProperty("color", color);
+
+        result[i] = element;
+      }
+
+      elements[capability.ordinal()] = result;
+      return result;
+    }
+  }
+
+  // Length of {"text":"c","color":"#rrggbb"}, followed by a comma
+  private static final int ELEMENT_JSON_LENGTH = 34;
+
+  // Static text of each segment, null for placeholders
+  private final String[] segmentTexts;
+
+  // Placeholder index of each segment, -1 for static text
+  private final int[] segmentPlaceholders;
+
+  private final List<String> placeholderNames;
+  private final boolean[] headFormatting;
+
+  // Serialized head, null if the formatting changed since it's been rendered last
+  private @Nullable String headJson;
+
+  private final Map<SegmentKey, RenderedSegment> segmentCache;
+  private final SegmentKey probe;
+
+  // Outlives the ticks, as animated gradients keep repeating their states
+  private final GradientColorCache colorCache;
+
+  private AnimatedTextTemplate(List<String> segmentTexts, List<Integer> segmentPlaceholders, List<String> placeholderNames) {
+    this.segmentTexts = segmentTexts.toArray(new String[0]);
+    this.segmentPlaceholders = new int[segmentPlaceholders.size()];
+
+    for (int i = 0; i < this.segmentPlaceholders.length; i++)
+      this.segmentPlaceholders[i] = segmentPlaceholders.get(i);
+
+    this.placeholderNames = Collections.unmodifiableList(placeholderNames);
+    this.headFormatting = new boolean[TextFormatting.values.length];
+    this.segmentCache = new HashMap<>();
+    this.probe = new SegmentKey("", 0, 0, new CompiledGradient());
+    this.colorCache = new GradientColorCache();
+  }
+
+  /**
+   * Compile a template, where placeholders are of format {@code {name}}, with
+   * names consisting of letters, digits and underscores. All other braces are literal text.
+   * @param template Template to compile
+   * @return Compiled template
+   */
+  public static AnimatedTextTemplate compile(String template) {
+    List<String> texts = new ArrayList<>();
+    List<Integer> placeholders = new ArrayList<>();
+    List<String> names = new ArrayList<>();
+
+    int textBegin = 0;
+
+    for (int i = 0; i < template.length(); i++) {
+      if (template.charAt(i) != '{')
+        continue;
+
+      int end = i + 1;
+      while (end < template.length() && isNameChar(template.charAt(end)))
+        end++;
+
+      // Not a placeholder, keep as literal text
+      if (end == i + 1 || end == template.length() || template.charAt(end) != '}')
+        continue;
+
+      if (i > textBegin) {
+        texts.add(template.substring(textBegin, i));
+        placeholders.add(-1);
+      }
+
+      String name = template.substring(i + 1, end);
+      int index = names.indexOf(name);
+
+      if (index < 0) {
+        index = names.size();
+        names.add(name);
+      }
+
+      texts.add(null);
+      placeholders.add(index);
+
+      i = end;
+      textBegin = end + 1;
+    }
+
+    if (textBegin < template.length()) {
+      texts.add(template.substring(textBegin));
+      placeholders.add(-1);
+    }
+
+    return new AnimatedTextTemplate(texts, placeholders, names);
+  }
+
+  /**
+   * Get the names of all placeholders, where each name's index is the
+   * index it's value is expected at when resolving or rendering
+   */
+  public List<String> getPlaceholderNames() {
+    return placeholderNames;
+  }
+
+  /**
+   * Get the index of a placeholder's value
+   * @param name Name of the placeholder
+   * @return Index, -1 if there's no such placeholder
+   */
+  public int getPlaceholderIndex(String name) {
+    return placeholderNames.indexOf(name);
+  }
+
+  /**
+   * Toggle a formatting on the head, which applies to the whole text
+   * @param formatting Formatting to toggle
+   * @param state New state
+   */
+  public void toggleFormatting(TextFormatting formatting, boolean state) {
+    this.headFormatting[formatting.ordinal()] = state;
+    this.headJson = null;
+  }
+
+  /**
+   * Drop all segments rendered during the previous tick
+   */
+  public void beginTick() {
+    segmentCache.clear();
+  }
+
+  /**
+   * Resolve the template's text by substituting all placeholders
+   * @param values Values of all placeholders, indexed like {@link #getPlaceholderNames()}
+   * @return Resolved text
+   */
+  public String resolve(String[] values) {
+    StringBuilder result = new StringBuilder();
+
+    for (int i = 0; i < segmentTexts.length; i++)
+      result.append(segmentText(i, values));
+
+    return result.toString();
+  }
+
+  /**
+   * Render the template with a gradient applied to the whole resolved text, producing
+   * the same output as gradientizing the resolved text with the head's formatting
+   * @param gradient Gradient to apply, which may be mutated after this call
+   * @param values Values of all placeholders, indexed like {@link #getPlaceholderNames()}
+   * @return Rendered frame
+   */
+  public RenderedFrame render(CompiledGradient gradient, String[] values) {
+    return render(gradient, values, RenderBudget.UNLIMITED, null);
+  }
+
+  /**
+   * Render the template with a gradient applied to the whole resolved text, producing
+   * the same output as gradientizing the resolved text with the head's formatting
+   * @param gradient Gradient to apply, which may be mutated after this call
+   * @param values Values of all placeholders, indexed like {@link #getPlaceholderNames()}
+   * @param budget Budget to stay within, limited budgets quantize the resolved text as a whole
+   * @param generator Generator to quantize with, only required for limited budgets
+   * @return Rendered frame
+   */
+  public RenderedFrame render(
+    CompiledGradient gradient,
+    String[] values,
+    RenderBudget budget,
+    @Nullable GradientGenerator generator
+  ) {
+    return render(gradient, values, budget, generator, null);
+  }
+
+  /**
+   * Render the template with a gradient applied to the whole resolved text, producing
+   * the same output as gradientizing the resolved text with the head's formatting
+   * @param gradient Gradient to apply, which may be mutated after this call
+   * @param values Values of all placeholders, indexed like {@link #getPlaceholderNames()}
+   * @param budget Budget to stay within, limited budgets quantize the resolved text as a whole
+   * @param generator Generator to quantize with, only required for limited budgets
+   * @param arena Arena to take scratch arrays and string builders from, null to allocate them
+   * @return Rendered frame, only valid until the arena's next tick if rendered from it
+   */
+  public RenderedFrame render(
+    CompiledGradient gradient,
+    String[] values,
+    RenderBudget budget,
+    @Nullable GradientGenerator generator,
+    @Nullable RenderArena arena
+  ) {
+    // Quantized segments span across placeholder bounds, so there's nothing to share
+    if (!budget.isUnlimited()) {
+      if (generator == null)
+        throw new IllegalArgumentException("A generator is required to render within a limited budget");
+
+      TextComponent result = generator.gradientize(resolve(values), gradient, budget, arena);
+
+      for (int i = 0; i < headFormatting.length; i++) {
+        if (headFormatting[i])
+          result.toggleFormatting(TextFormatting.values[i], true);
+      }
+
+      return new RenderedFrame(result);
+    }
+
+    int totalLength = 0;
+    for (int i = 0; i < segmentTexts.length; i++)
+      totalLength += segmentText(i, values).length();
+
+    RenderedSegment[] segments = new RenderedSegment[segmentTexts.length];
+
+    for (int i = 0, offset = 0; i < segmentTexts.length; i++) {
+      String text = segmentText(i, values);
+      segments[i] = getOrRenderSegment(text, offset, totalLength, gradient);
+      offset += text.length();
+    }
+
+    return new RenderedFrame(
+      capability -> renderJson(segments, capability),
+      capability -> renderString(segments, capability, arena),
+      arena
+    );
+  }
+
+  private JsonObject renderHead() {
+    JsonObject head = new JsonObject();
+    head.addProperty("text", "");
+
+    for (int i = 0; i < headFormatting.length; i++) {
+      if (headFormatting[i])
+        head.addProperty(TextFormatting.values[i].name().toLowerCase(), true);
+    }
+
+    return head;
+  }
+
+  private JsonObject renderJson(RenderedSegment[] segments, ClientCapability capability) {
+    JsonObject head = renderHead();
+    JsonArray extra = new JsonArray();
+
+    for (RenderedSegment segment : segments) {
+      for (JsonObject element : segment.getElements(capability))
+        extra.add(element);
+    }
+
+    if (extra.size() > 0)
+      head.add("extra", extra);
+
+    return head;
+  }
+
+  private String renderString(RenderedSegment[] segments, ClientCapability capability, @Nullable RenderArena arena) {
+    if (headJson == null)
+      headJson = renderHead().toString();
+
+    // Splice the segments' fragments into the head's closing brace
+    StringBuilder result = arena == null ? new StringBuilder() : arena.builder();
+    result.append(headJson, 0, headJson.length() - 1).append(",\"extra\":[");
+
+    int extraBegin = result.length();
+
+    for (RenderedSegment segment : segments) {
+      String fragment = segment.getFragment(capability);
+
+      if (fragment.isEmpty())
+        continue;
+
+      if (result.length() != extraBegin)
+        result.append(',');
+
+      result.append(fragment);
+    }
+
+    if (result.length() == extraBegin)
+      return headJson;
+
+    return result.append("]}").toString();
+  }
+
+  private RenderedSegment getOrRenderSegment(String text, int offset, int totalLength, CompiledGradient gradient) {
+    probe.text = text;
+    probe.offset = offset;
+    probe.totalLength = totalLength;
+    probe.gradient = gradient;
+
+    RenderedSegment segment = segmentCache.get(probe);
+
+    if (segment != null)
+      return segment;
+
+    // All segments of a resolution share the colors of the whole text
+    segment = new RenderedSegment(text, colorCache.get(gradient, totalLength).getHexColors(), offset);
+    segmentCache.put(new SegmentKey(text, offset, totalLength, gradient.copy()), segment);
+    return segment;
+  }
+
+  private String segmentText(int index, String[] values) {
+    int placeholder = segmentPlaceholders[index];
+
+    if (placeholder < 0)
+      return segmentTexts[index];
+
+    return placeholder < values.length && values[placeholder] != null ? values[placeholder] : "";
+  }
+
+  /**
+   * Append a character to a JSON string value, escaped exactly like Gson serializes it
+   */
+  private static void appendJsonChar(StringBuilder output, char c) {
+    switch (c) {
+      case '"': output.append("\\\""); return;
+      case '\\': output.append("\\\\"); return;
+      case '\b': output.append("\\b"); return;
+      case '\t': output.append("\\t"); return;
+      case '\n': output.append("\\n"); return;
+      case '\f': output.append("\\f"); return;
+      case '\r': output.append("\\r"); return;
+    }
+
+    if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+      output.append("\\u");
+
+      for (int shift = 12; shift >= 0; shift -= 4)
+        output.append(Character.forDigit((c >> shift) & 0xF, 16));
+
+      return;
+    }
+
+    output.append(c);
+  }
+
+  private static boolean isNameChar(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+  }
+}
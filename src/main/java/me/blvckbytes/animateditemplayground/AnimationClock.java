@@ -0,0 +1,96 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 BlvckBytes
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package me.blvckbytes.animateditemplayground;
+
+import java.util.UUID;
+
+/**
+ * A clock shared by all players of an animation, so that players see the same frames
+ * at the same time, instead of each running their own phase from when they were first
+ * seen, which allows a frame to be rendered once and delivered to all of them.
+ * <p>
+ * To still not have everyone look exactly alike, players are spread across a number
+ * of buckets, each running a fixed, evenly spaced number of ticks ahead of the clock;
+ * frames are then shared by all players of a bucket. Instances are not thread-safe.
+ * <p>
+ * Whole frames are only shared by players of equal text. With a template which includes the
+ * player's name, like the default item name, the {@link AnimatedTextTemplate} still shares
+ * the colors and the static segments within a bucket, as they only depend on the phase and
+ * the text's length; only the name's segment and splicing the segments together remain per
+ * player. Rendering cost thereby still grows with the player count, just at a lower rate.
+ */
+public class AnimationClock {
+
+  private final int bucketCount;
+  private final long bucketSpacing;
+  private long tick;
+
+  /**
+   * Create a new clock, starting at tick zero
+   * @param bucketCount Number of buckets to spread players across, one to have all players in sync
+   * @param cycleTicks Number of ticks after which the animation repeats, which the buckets are spread across
+   */
+  public AnimationClock(int bucketCount, long cycleTicks) {
+    if (bucketCount <= 0)
+      throw new IllegalArgumentException("The bucket count has to be positive, got " + bucketCount);
+
+    this.bucketCount = bucketCount;
+    this.bucketSpacing = Math.max(0, cycleTicks) / bucketCount;
+  }
+
+  /**
+   * Advance the clock by a single tick, once per frame
+   */
+  public void advance() {
+    tick++;
+  }
+
+  public long getTick() {
+    return tick;
+  }
+
+  public int getBucketCount() {
+    return bucketCount;
+  }
+
+  /**
+   * Get the bucket a player belongs to, which stays the same for their whole session
+   * @param owner Player's UUID
+   * @return Bucket, between zero and the bucket count, exclusive
+   */
+  public int getBucket(UUID owner) {
+    return Math.floorMod(owner.hashCode(), bucketCount);
+  }
+
+  /**
+   * Get the current tick of a bucket, which runs ahead of the clock by it's offset
+   * @param bucket Bucket to get the tick of
+   * @return Current tick of the bucket
+   */
+  public long getTick(int bucket) {
+    return tick + bucket * bucketSpacing;
+  }
+}
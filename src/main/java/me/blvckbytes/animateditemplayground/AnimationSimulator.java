@@ -0,0 +1,306 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 BlvckBytes
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.blvckbytes.animateditemplayground;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+
+/**
+ * Drives the frame pipeline of {@link AnimatedItemTest} (advancing the animation state,
+ * rendering through the template, serializing per client capability and delivering)
+ * for a number of simulated players on a plain JVM, without any server or clients.
+ * <p>
+ * Run through the {@code simulator} profile, e.g.
+ * {@code mvn -Psimulator -Dsimulator.args="--players=1000 --ticks=1200"}.
+ * Delivery is stubbed by counting the number of bytes the frame occupies on the wire.
+ */
+public class AnimationSimulator {
+
+  // Pairs of around- and center-colors, assigned to players round robin
+  private static final int[][] ANIMATION_COLORS = {
+    { 0xFE4800, 0xFDFC00 },
+    { 0x0048FE, 0x00FCFD },
+    { 0x7F00FE, 0xFE00C8 },
+    { 0x00A000, 0xC8FE00 },
+  };
+
+  private static class SimulatedPlayer {
+    final String[] values;
+    final String text;
+    final CompiledGradient colors;
+    final ClientCapability capability;
+    final int clockBucket;
+    byte direction;
+
+    private SimulatedPlayer(String[] values, String text, CompiledGradient colors, ClientCapability capability, int clockBucket, byte direction) {
+      this.values = values;
+      this.text = text;
+      this.colors = colors;
+      this.capability = capability;
+      this.clockBucket = clockBucket;
+      this.direction = direction;
+    }
+  }
+
+  private final int players, ticks, warmupTicks;
+  private final double legacyRatio;
+  private final int animations;
+  private final RenderBudget budget;
+  private final long seed;
+
+  // Clock all players follow, null if each player runs their own phase
+  private final @Nullable AnimationClock clock;
+
+  private final GradientGenerator gradientGenerator;
+  private final AnimatedTextTemplate nameTemplate;
+  private final FrameCache frameCache;
+
+  // Sum of all delivered bytes, read after the run so that delivery can't be optimized away
+  private long deliveredBytes;
+  private long deliveredFrames;
+
+  private AnimationSimulator(Map<String, String> options) {
+    this.players = intOption(options, "players", 1000);
+    this.ticks = intOption(options, "ticks", 1200);
+
+    // Percentiles are taken over the measured ticks, of which there has to be at least one
+    if (ticks < 1)
+      throw new IllegalArgumentException("Expected at least one tick to measure, got " + ticks);
+
+    this.warmupTicks = intOption(options, "warmup", 200);
+    this.legacyRatio = doubleOption(options, "legacy", 0.1);
+    this.animations = Math.max(1, Math.min(ANIMATION_COLORS.length, intOption(options, "animations", ANIMATION_COLORS.length)));
+    this.budget = new RenderBudget(intOption(options, "max-segments", 0), intOption(options, "max-bytes", 0));
+    this.seed = intOption(options, "seed", 1);
+
+    int clockBuckets = intOption(options, "clock-buckets", 0);
+    this.clock = clockBuckets > 0 ? new AnimationClock(clockBuckets, SweepAnimation.CYCLE_TICKS) : null;
+
+    this.gradientGenerator = new GradientGenerator();
+    this.frameCache = new FrameCache();
+    this.nameTemplate = AnimatedTextTemplate.compile(options.getOrDefault("template", "FancyItem | {player}"));
+    this.nameTemplate.toggleFormatting(TextFormatting.BOLD, true);
+  }
+
+  public static void main(String[] args) {
+    Map<String, String> options = new HashMap<>();
+
+    for (String arg : args) {
+      if (!arg.startsWith("--"))
+        throw new IllegalArgumentException("Expected arguments of format --name=value, got " + arg);
+
+      int separator = arg.indexOf('=');
+
+      if (separator < 0)
+        options.put(arg.substring(2), "true");
+      else
+        options.put(arg.substring(2, separator), arg.substring(separator + 1));
+    }
+
+    new AnimationSimulator(options).run();
+  }
+
+  private void run() {
+    List<SimulatedPlayer> simulatedPlayers = createPlayers();
+
+    System.out.printf(
+      "Simulating %d players over %d ticks (+%d warmup), %d animation(s), %.0f%% legacy clients, budget %d segments / %d bytes, %d clock bucket(s)%n",
+      players, ticks, warmupTicks, animations, legacyRatio * 100, budget.getMaxSegments(), budget.getMaxBytes(),
+      clock == null ? 0 : clock.getBucketCount()
+    );
+
+    // Let the JIT settle before measuring
+    for (int i = 0; i < warmupTicks; i++)
+      runTick(simulatedPlayers);
+
+    deliveredBytes = 0;
+    deliveredFrames = 0;
+
+    ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    long threadId = Thread.currentThread().getId();
+
+    long[] tickNanos = new long[ticks];
+    long gcCountBefore = getGcCount(), gcMillisBefore = getGcMillis();
+    long allocatedBefore = getAllocatedBytes(threadBean, threadId);
+    long start = System.nanoTime();
+
+    for (int i = 0; i < ticks; i++) {
+      long tickStart = System.nanoTime();
+      runTick(simulatedPlayers);
+      tickNanos[i] = System.nanoTime() - tickStart;
+    }
+
+    long elapsedNanos = System.nanoTime() - start;
+    long allocated = getAllocatedBytes(threadBean, threadId) - allocatedBefore;
+    long gcCount = getGcCount() - gcCountBefore, gcMillis = getGcMillis() - gcMillisBefore;
+
+    report(tickNanos, elapsedNanos, allocated, gcCount, gcMillis);
+  }
+
+  private List<SimulatedPlayer> createPlayers() {
+    Random random = new Random(seed);
+    List<SimulatedPlayer> result = new ArrayList<>(players);
+
+    for (int i = 0; i < players; i++) {
+      int[] colors = ANIMATION_COLORS[i % animations];
+
+      CompiledGradient gradient = new CompiledGradient(3);
+      gradient.setInterpolation(GradientInterpolation.OKLAB);
+      gradient.addStop(colors[0], 0.0);
+      // Players on the clock take their bucket's phase on every tick instead
+      gradient.addStop(colors[1], clock != null ? .5 : SweepAnimation.EDGE_STOP + random.nextDouble() * (1 - 2 * SweepAnimation.EDGE_STOP));
+      gradient.addStop(colors[0], 1.0);
+
+      ClientCapability capability = random.nextDouble() < legacyRatio ? ClientCapability.LEGACY_COLORS : ClientCapability.HEX_COLORS;
+      byte direction = random.nextBoolean() ? AnimationStateStore.FORWARDS : AnimationStateStore.BACKWARDS;
+      String[] values = { "Player" + i };
+      int clockBucket = clock == null ? 0 : random.nextInt(clock.getBucketCount());
+      result.add(new SimulatedPlayer(values, nameTemplate.resolve(values), gradient, capability, clockBucket, direction));
+    }
+
+    return result;
+  }
+
+  private void runTick(List<SimulatedPlayer> simulatedPlayers) {
+    frameCache.beginTick();
+    nameTemplate.beginTick();
+
+    for (SimulatedPlayer player : simulatedPlayers) {
+      if (clock != null)
+        player.colors.setOffset(1, SweepAnimation.phaseAt(clock.getTick(player.clockBucket)));
+
+      RenderedFrame frame = frameCache.getOrRender(player.text, player.colors, () -> (
+        nameTemplate.render(player.colors, player.values, budget, gradientGenerator)
+      ));
+
+      deliver(frame.getWireLength(player.capability));
+
+      if (clock == null)
+        advance(player);
+    }
+
+    if (clock != null)
+      clock.advance();
+  }
+
+  /**
+   * Stands in for writing the frame into an outgoing packet
+   */
+  private void deliver(int wireLength) {
+    deliveredBytes += wireLength;
+    deliveredFrames++;
+  }
+
+  private void advance(SimulatedPlayer player) {
+    double phase = player.colors.getOffset(1);
+
+    player.direction = SweepAnimation.turn(phase, player.direction);
+    player.colors.setOffset(1, SweepAnimation.step(phase, player.direction));
+  }
+
+  ////////////////////////////////// Reporting //////////////////////////////////
+
+  private void report(long[] tickNanos, long elapsedNanos, long allocated, long gcCount, long gcMillis) {
+    double seconds = elapsedNanos / 1e9;
+    long[] sorted = tickNanos.clone();
+    Arrays.sort(sorted);
+
+    System.out.printf("Throughput: %.0f frames/s, %.1f ticks/s, %.2f MB/s delivered%n",
+      deliveredFrames / seconds, ticks / seconds, deliveredBytes / seconds / 1e6);
+
+    System.out.printf("Tick latency: p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, max %.3f ms%n",
+      percentile(sorted, .5) / 1e6, percentile(sorted, .9) / 1e6,
+      percentile(sorted, .99) / 1e6, sorted[sorted.length - 1] / 1e6);
+
+    if (allocated < 0)
+      System.out.println("Allocation: not supported by this JVM");
+    else
+      System.out.printf("Allocation: %.2f MB/s, %d bytes/tick, %d bytes/frame%n",
+        allocated / seconds / 1e6, allocated / ticks, allocated / Math.max(1, deliveredFrames));
+
+    System.out.printf("GC: %d collection(s), %d ms total%n", gcCount, gcMillis);
+  }
+
+  private static long percentile(long[] sorted, double percentile) {
+    int index = (int) Math.ceil(percentile * sorted.length) - 1;
+    return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+  }
+
+  /**
+   * Get the bytes allocated by a thread, which is only supported by HotSpot's extension of the bean
+   * @return Allocated bytes, -1 if not supported
+   */
+  private static long getAllocatedBytes(ThreadMXBean threadBean, long threadId) {
+    if (!(threadBean instanceof com.sun.management.ThreadMXBean))
+      return -1;
+
+    com.sun.management.ThreadMXBean extendedBean = (com.sun.management.ThreadMXBean) threadBean;
+
+    if (!extendedBean.isThreadAllocatedMemorySupported() || !extendedBean.isThreadAllocatedMemoryEnabled())
+      return -1;
+
+    return extendedBean.getThreadAllocatedBytes(threadId);
+  }
+
+  private static long getGcCount() {
+    long result = 0;
+    for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans())
+      result += Math.max(0, bean.getCollectionCount());
+    return result;
+  }
+
+  private static long getGcMillis() {
+    long result = 0;
+    for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans())
+      result += Math.max(0, bean.getCollectionTime());
+    return result;
+  }
+
+  ////////////////////////////////// Options ///////////////////////////////////
+
+  private static int intOption(Map<String, String> options, String name, int fallback) {
+    String value = options.get(name);
+
+    try {
+      return value == null ? fallback : Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Expected an integer for --" + name + ", got " + value);
+    }
+  }
+
+  private static double doubleOption(Map<String, String> options, String name, double fallback) {
+    String value = options.get(name);
+
+    try {
+      return value == null ? fallback : Double.parseDouble(value);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Expected a decimal for --" + name + ", got " + value);
+    }
+  }
+}
@@ -0,0 +1,324 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 BlvckBytes
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.blvckbytes.animateditemplayground;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Keeps the animation state of all players in parallel primitive arrays, indexed by
+ * a dense slot id which is assigned on first use and recycled once released. Iterating
+ * all slots thereby walks a few contiguous arrays instead of chasing per-player objects.
+ * <p>
+ * Players are keyed by their UUID instead of their instance, so that a missed
+ * release doesn't keep the player alive. Instances are not thread-safe.
+ */
+public class AnimationStateStore {
+
+  private static final int DEFAULT_CAPACITY = 64;
+
+  public static final byte FORWARDS = 1, BACKWARDS = -1;
+
+  private final UuidSlotTable slotByOwner;
+
+  private UUID[] owners;
+  private double[] phases;
+  private byte[] directions;
+  private int[] animationIds;
+  // Serialized JSON of the last frame delivered to each slot
+  private String[] lastFrames;
+
+  // Placeholder values of each slot and the text they resolve to, both constant while the slot is held
+  private String[][] placeholderValues;
+  private String[] resolvedTexts;
+
+  // Bucket of each slot on a shared AnimationClock
+  private int[] clockBuckets;
+
+  // Token bucket of each slot's animation bandwidth, see BandwidthLimiter
+  private double[] bandwidthTokens;
+  private long[] bandwidthStamps;
+
+  // Bytes delivered and frames dropped since the slot has been acquired
+  private long[] sentBytes;
+  private int[] droppedFrames;
+
+  // Stack of released slots below the high water mark
+  private int[] freeSlots;
+  private int freeCount;
+
+  // Number of slots which have ever been handed out
+  private int highWater;
+
+  public AnimationStateStore() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Create a new store with room for a given number of players
+   * @param capacity Number of slots to reserve space for
+   */
+  public AnimationStateStore(int capacity) {
+    capacity = Math.max(1, capacity);
+
+    this.slotByOwner = new UuidSlotTable(capacity);
+    this.owners = new UUID[capacity];
+    this.phases = new double[capacity];
+    this.directions = new byte[capacity];
+    this.animationIds = new int[capacity];
+    this.lastFrames = new String[capacity];
+    this.placeholderValues = new String[capacity][];
+    this.resolvedTexts = new String[capacity];
+    this.clockBuckets = new int[capacity];
+    this.bandwidthTokens = new double[capacity];
+    this.bandwidthStamps = new long[capacity];
+    this.sentBytes = new long[capacity];
+    this.droppedFrames = new int[capacity];
+    this.freeSlots = new int[capacity];
+  }
+
+  /**
+   * Get the slot of a player
+   * @param owner Player's UUID
+   * @return Slot, -1 if the player has no state
+   */
+  public int getSlot(UUID owner) {
+    return slotByOwner.get(owner);
+  }
+
+  /**
+   * Acquire a slot for a player, recycling released slots first
+   * @param owner Player's UUID
+   * @param animationId Id of the animation to play
+   * @param phase Initial phase of the animation
+   * @param direction Initial direction, either {@link #FORWARDS} or {@link #BACKWARDS}
+   * @return Acquired slot, or the existing slot if the player already has state
+   */
+  public int acquire(UUID owner, int animationId, double phase, byte direction) {
+    int slot = getSlot(owner);
+
+    if (slot >= 0)
+      return slot;
+
+    if (freeCount > 0)
+      slot = freeSlots[--freeCount];
+
+    else {
+      if (highWater == owners.length)
+        grow();
+
+      slot = highWater++;
+    }
+
+    owners[slot] = owner;
+    phases[slot] = phase;
+    directions[slot] = direction;
+    animationIds[slot] = animationId;
+    lastFrames[slot] = null;
+    placeholderValues[slot] = null;
+    resolvedTexts[slot] = null;
+    clockBuckets[slot] = 0;
+    bandwidthTokens[slot] = 0;
+    bandwidthStamps[slot] = BandwidthLimiter.UNSTAMPED;
+    sentBytes[slot] = 0;
+    droppedFrames[slot] = 0;
+
+    slotByOwner.put(owner, slot);
+    return slot;
+  }
+
+  /**
+   * Release the slot of a player, making it available for reuse
+   * @param owner Player's UUID
+   * @return True if the player had state, false otherwise
+   */
+  public boolean release(UUID owner) {
+    int slot = slotByOwner.remove(owner);
+
+    if (slot == UuidSlotTable.NO_SLOT)
+      return false;
+
+    owners[slot] = null;
+    lastFrames[slot] = null;
+    placeholderValues[slot] = null;
+    resolvedTexts[slot] = null;
+    freeSlots[freeCount++] = slot;
+    return true;
+  }
+
+  /**
+   * Get the exclusive upper bound of all slots which may be occupied,
+   * to be iterated in conjunction with {@link #isOccupied(int)}
+   */
+  public int getSlotBound() {
+    return highWater;
+  }
+
+  public int size() {
+    return slotByOwner.size();
+  }
+
+  public boolean isOccupied(int slot) {
+    return owners[slot] != null;
+  }
+
+  public UUID getOwner(int slot) {
+    return owners[slot];
+  }
+
+  public double getPhase(int slot) {
+    return phases[slot];
+  }
+
+  public void setPhase(int slot, double phase) {
+    phases[slot] = phase;
+  }
+
+  public byte getDirection(int slot) {
+    return directions[slot];
+  }
+
+  public void setDirection(int slot, byte direction) {
+    directions[slot] = direction;
+  }
+
+  public int getAnimationId(int slot) {
+    return animationIds[slot];
+  }
+
+  public void setAnimationId(int slot, int animationId) {
+    animationIds[slot] = animationId;
+  }
+
+  /**
+   * Get the serialized JSON of the last frame delivered to a slot, null if none has been delivered yet
+   */
+  public @Nullable String getLastFrame(int slot) {
+    return lastFrames[slot];
+  }
+
+  public void setLastFrame(int slot, @Nullable String frameJson) {
+    lastFrames[slot] = frameJson;
+  }
+
+  /**
+   * Get the placeholder values of a slot, null if they have not been set since the slot has been acquired
+   */
+  public @Nullable String[] getPlaceholderValues(int slot) {
+    return placeholderValues[slot];
+  }
+
+  /**
+   * Get the text a slot's placeholder values resolve to, null if they have not been set
+   */
+  public @Nullable String getResolvedText(int slot) {
+    return resolvedTexts[slot];
+  }
+
+  /**
+   * Set the placeholder values of a slot along with the text they resolve to, which are
+   * kept until the slot is released, so that they're not resolved again on every frame
+   * @param slot Target slot
+   * @param values Values of all placeholders, which must not be mutated afterwards
+   * @param text Text the values resolve to
+   */
+  public void setPlaceholderValues(int slot, String[] values, String text) {
+    placeholderValues[slot] = values;
+    resolvedTexts[slot] = text;
+  }
+
+  /**
+   * Get the bucket of a slot on the shared clock, only relevant if the animation follows one
+   */
+  public int getClockBucket(int slot) {
+    return clockBuckets[slot];
+  }
+
+  public void setClockBucket(int slot, int bucket) {
+    clockBuckets[slot] = bucket;
+  }
+
+  public double getBandwidthTokens(int slot) {
+    return bandwidthTokens[slot];
+  }
+
+  public void setBandwidthTokens(int slot, double tokens) {
+    bandwidthTokens[slot] = tokens;
+  }
+
+  /**
+   * Get the nanosecond timestamp at which a slot's tokens have last been refilled,
+   * {@link BandwidthLimiter#UNSTAMPED} if they never have been
+   */
+  public long getBandwidthStamp(int slot) {
+    return bandwidthStamps[slot];
+  }
+
+  public void setBandwidthStamp(int slot, long stamp) {
+    bandwidthStamps[slot] = stamp;
+  }
+
+  /**
+   * Get the number of animation bytes delivered to a slot since it has been acquired
+   */
+  public long getSentBytes(int slot) {
+    return sentBytes[slot];
+  }
+
+  public void addSentBytes(int slot, int bytes) {
+    sentBytes[slot] += bytes;
+  }
+
+  /**
+   * Get the number of frames which have been dropped for a slot since it has been acquired
+   */
+  public int getDroppedFrames(int slot) {
+    return droppedFrames[slot];
+  }
+
+  public void addDroppedFrame(int slot) {
+    droppedFrames[slot]++;
+  }
+
+  private void grow() {
+    int capacity = owners.length * 2;
+
+    owners = Arrays.copyOf(owners, capacity);
+    phases = Arrays.copyOf(phases, capacity);
+    directions = Arrays.copyOf(directions, capacity);
+    animationIds = Arrays.copyOf(animationIds, capacity);
+    lastFrames = Arrays.copyOf(lastFrames, capacity);
+    placeholderValues = Arrays.copyOf(placeholderValues, capacity);
+    resolvedTexts = Arrays.copyOf(resolvedTexts, capacity);
+    clockBuckets = Arrays.copyOf(clockBuckets, capacity);
+    bandwidthTokens = Arrays.copyOf(bandwidthTokens, capacity);
+    bandwidthStamps = Arrays.copyOf(bandwidthStamps, capacity);
+    sentBytes = Arrays.copyOf(sentBytes, capacity);
+    droppedFrames = Arrays.copyOf(droppedFrames, capacity);
+    freeSlots = Arrays.copyOf(freeSlots, capacity);
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 BlvckBytes
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package me.blvckbytes.animateditemplayground;
+
+/**
+ * Limits the animation bandwidth of each player through a token bucket, which refills at a
+ * constant rate of bytes per second up to a maximum burst. A frame may only be sent if the
+ * bucket holds enough tokens for all of it's bytes, otherwise it has to be dropped, which
+ * thins out the frames of a player to the configured rate. The buckets themselves are kept
+ * within the {@link AnimationStateStore}, per slot.
+ */
+public class BandwidthLimiter {
+
+  // Marks a bucket which has never been refilled, which starts out full
+  public static final long UNSTAMPED = Long.MIN_VALUE;
+
+  private static final double NANOS_PER_SECOND = 1_000_000_000D;
+
+  private final double bytesPerNano;
+  private final int burstBytes;
+
+  /**
+   * Create a new limiter
+   * @param bytesPerSecond Sustained number of bytes per second and player
+   * @param burstBytes Maximum number of bytes a player may receive at once, which has to
+   *                   be at least the size of the largest frame, as it could never be sent otherwise
+   */
+  public BandwidthLimiter(int bytesPerSecond, int burstBytes) {
+    if (bytesPerSecond <= 0 || burstBytes <= 0)
+      throw new IllegalArgumentException("The rate and the burst have to be positive");
+
+    this.bytesPerNano = bytesPerSecond / NANOS_PER_SECOND;
+    this.burstBytes = burstBytes;
+  }
+
+  /**
+   * Try to take the tokens for a frame out of a slot's bucket, which is refilled first
+   * @param store Store holding the slot's bucket
+   * @param slot Slot of the receiving player
+   * @param bytes Number of bytes the frame occupies on the wire
+   * @param now Current timestamp, as obtained by {@link System#nanoTime()}
+   * @return True if the frame may be sent and has been accounted for, false if it has to be dropped
+   */
+  public boolean tryAcquire(AnimationStateStore store, int slot, int bytes, long now) {
+    long stamp = store.getBandwidthStamp(slot);
+    double tokens;
+
+    if (stamp == UNSTAMPED)
+      tokens = burstBytes;
+    else
+      tokens = Math.min(burstBytes, store.getBandwidthTokens(slot) + (now - stamp) * bytesPerNano);
+
+    store.setBandwidthStamp(slot, now);
+
+    if (tokens < bytes) {
+      store.setBandwidthTokens(slot, tokens);
+      return false;
+    }
+
+    store.setBandwidthTokens(slot, tokens - bytes);
+    store.addSentBytes(slot, bytes);
+    return true;
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 BlvckBytes
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package me.blvckbytes.animateditemplayground;
+
+import org.bukkit.Bukkit;
+import org.bukkit.boss.BarColor;
+import org.bukkit.boss.BarStyle;
+import org.bukkit.boss.BossBar;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shows frames as the title of a boss bar, of which each player has their own,
+ * as players may see different frames at the same time. Just like scoreboards, bars are
+ * created and added to their player by a task on the main thread when the player is first
+ * shown a frame, while all frames until it's ready are dropped.
+ */
+public class BossBarRenderTarget implements IRenderTarget {
+
+  private final Plugin plugin;
+  private final Map<UUID, BossBar> bars;
+  private final BarColor color;
+  private final BarStyle style;
+
+  // Players whose bar is being set up on the main thread
+  private final Set<UUID> pendingSetups;
+
+  /**
+   * Create a new boss bar target
+   * @param plugin Plugin to schedule the setup of bars with
+   * @param color Color of the bars
+   * @param style Style of the bars
+   */
+  public BossBarRenderTarget(Plugin plugin, BarColor color, BarStyle style) {
+    this.plugin = plugin;
+    this.bars = new ConcurrentHashMap<>();
+    this.color = color;
+    this.style = style;
+    this.pendingSetups = ConcurrentHashMap.newKeySet();
+  }
+
+  @Override
+  public void show(Player player, RenderedFrame frame, ClientCapability capability) {
+    String title = frame.getLegacyText(capability);
+    BossBar bar = bars.get(player.getUniqueId());
+
+    if (bar != null) {
+      bar.setTitle(title);
+      return;
+    }
+
+    if (!pendingSetups.add(player.getUniqueId()))
+      return;
+
+    Bukkit.getScheduler().runTask(plugin, () -> {
+      // Quit before the task came around
+      if (!pendingSetups.remove(player.getUniqueId()) || !player.isOnline())
+        return;
+
+      BossBar created = Bukkit.createBossBar(title, color, style);
+      created.addPlayer(player);
+      bars.put(player.getUniqueId(), created);
+    });
+  }
+
+  @Override
+  public void clear(Player player) {
+    pendingSetups.remove(player.getUniqueId());
+    BossBar bar = bars.remove(player.getUniqueId());
+
+    if (bar != null)
+      bar.removeAll();
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 BlvckBytes
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package me.blvckbytes.animateditemplayground;
+
+import me.blvckbytes.animateditemplayground.AccessorFactory.IFieldGetter;
+import me.blvckbytes.animateditemplayground.AccessorFactory.IInstanceFunction;
+import me.blvckbytes.animateditemplayground.AccessorFactory.IInstancePredicate;
+import me.blvckbytes.bukkitboilerplate.ELogLevel;
+import me.blvckbytes.bukkitboilerplate.ILogger;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Tells whether a player's outbound netty channel still accepts writes without queueing,
+ * which it stops doing once it's buffered bytes exceed the channel's high water mark,
+ * like when the client's connection can't keep up.
+ * <p>
+ * The channel is reached through the player's handle, by following the chain of members
+ * {@code handle -> connection -> network manager -> channel}, each of which is resolved by
+ * it's type. If any member of the chain is absent on this version, all channels are reported
+ * as writable. If following the chain fails at runtime, that's logged once and the channel
+ * is also reported as writable, as frames should rather be sent than dropped forever.
+ */
+public class ChannelWritabilityProbe {
+
+  private final @Nullable IInstanceFunction M_CRAFT_PLAYER__GET_HANDLE;
+  private final @Nullable IFieldGetter F_ENTITY_PLAYER__CONNECTION;
+  private final @Nullable IFieldGetter F_PLAYER_CONNECTION__NETWORK_MANAGER, F_NETWORK_MANAGER__CHANNEL;
+  private final @Nullable IInstancePredicate M_CHANNEL__IS_WRITABLE;
+
+  private final ILogger logger;
+
+  // Only ever accessed by the animation thread
+  private boolean failureLogged;
+
+  /**
+   * Create a new probe from the members of the chain, all of which may be null if absent
+   * @param logger Logger to report a broken chain to
+   * @param getHandle Accessor of the player's handle
+   * @param connection Accessor of the handle's connection
+   * @param networkManager Accessor of the connection's network manager
+   * @param channel Accessor of the network manager's channel
+   * @param isWritable Accessor of the channel's writability
+   */
+  public ChannelWritabilityProbe(
+    ILogger logger,
+    @Nullable IInstanceFunction getHandle,
+    @Nullable IFieldGetter connection,
+    @Nullable IFieldGetter networkManager,
+    @Nullable IFieldGetter channel,
+    @Nullable IInstancePredicate isWritable
+  ) {
+    this.logger = logger;
+    this.M_CRAFT_PLAYER__GET_HANDLE = getHandle;
+    this.F_ENTITY_PLAYER__CONNECTION = connection;
+    this.F_PLAYER_CONNECTION__NETWORK_MANAGER = networkManager;
+    this.F_NETWORK_MANAGER__CHANNEL = channel;
+    this.M_CHANNEL__IS_WRITABLE = isWritable;
+  }
+
+  /**
+   * Check whether a player's channel is writable
+   * @param player Target player
+   * @return False if the channel's outbound buffer is saturated, true otherwise
+   *         or if the channel is not accessible
+   */
+  public boolean isWritable(Player player) {
+    if (
+      M_CRAFT_PLAYER__GET_HANDLE == null || F_ENTITY_PLAYER__CONNECTION == null ||
+      F_PLAYER_CONNECTION__NETWORK_MANAGER == null || F_NETWORK_MANAGER__CHANNEL == null ||
+      M_CHANNEL__IS_WRITABLE == null
+    )
+      return true;
+
+    try {
+      Object handle = M_CRAFT_PLAYER__GET_HANDLE.apply(player);
+
+      // Not yet or no longer connected
+      Object connection = handle == null ? null : F_ENTITY_PLAYER__CONNECTION.get(handle);
+      Object networkManager = connection == null ? null : F_PLAYER_CONNECTION__NETWORK_MANAGER.get(connection);
+      Object channel = networkManager == null ? null : F_NETWORK_MANAGER__CHANNEL.get(networkManager);
+
+      if (channel == null)
+        return true;
+
+      return M_CHANNEL__IS_WRITABLE.test(channel);
+    } catch (Exception e) {
+      if (!failureLogged) {
+        failureLogged = true;
+        logger.log(ELogLevel.WARNING, "Could not probe the writability of " + player.getName() + "'s channel, treating all channels as writable");
+        logger.logError(e);
+      }
+
+      return true;
+    }
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 BlvckBytes
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.blvckbytes.animateditemplayground;
+
+import me.blvckbytes.bukkitboilerplate.ELogLevel;
+import me.blvckbytes.bukkitboilerplate.ILogger;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps track of each online player's rendering capability, which is decided once on
+ * join. Clients connecting through a protocol translation layer are detected through
+ * ViaVersion's API, if it's installed; all other clients are as recent as the server.
+ * <p>
+ * Capabilities are read on the animation thread, which may still be rendering for a player
+ * who just quit and would then detect them again. Entries are thereby not dropped on quit,
+ * but released by the animation thread through {@link #release(UUID)}, once it no longer
+ * renders for that player.
+ */
+public class ClientCapabilityRegistry implements Listener {
+
+  // Protocol version of 1.16, which introduced hex colors
+  private static final int HEX_COLORS_PROTOCOL_VERSION = 735;
+
+  private static final String[] VIA_CLASS_NAMES = {
+    "com.viaversion.viaversion.api.Via",
+    "us.myles.ViaVersion.api.Via"
+  };
+
+  private final Map<UUID, ClientCapability> capabilities;
+  private final ILogger logger;
+
+  // ViaVersion's API accessors, null if it's not installed
+  private final @Nullable Method M_VIA__GET_API, M_VIA_API__GET_PLAYER_VERSION;
+
+  public ClientCapabilityRegistry(ILogger logger) {
+    this.logger = logger;
+    this.capabilities = new ConcurrentHashMap<>();
+
+    Method getApi = null, getPlayerVersion = null;
+
+    for (String className : VIA_CLASS_NAMES) {
+      try {
+        getApi = Class.forName(className).getMethod("getAPI");
+        getPlayerVersion = getApi.getReturnType().getMethod("getPlayerVersion", UUID.class);
+        logger.log(ELogLevel.INFO, "Detecting client capabilities through " + className);
+        break;
+      } catch (ClassNotFoundException | NoSuchMethodException ignored) {
+        getApi = null;
+        getPlayerVersion = null;
+      }
+    }
+
+    this.M_VIA__GET_API = getApi;
+    this.M_VIA_API__GET_PLAYER_VERSION = getPlayerVersion;
+  }
+
+  /**
+   * Get a player's rendering capability, which is decided once per session
+   * @param player Target player
+   * @return Capability of the player's client
+   */
+  public ClientCapability getCapability(Player player) {
+    UUID id = player.getUniqueId();
+    ClientCapability capability = capabilities.get(id);
+
+    if (capability != null)
+      return capability;
+
+    // Players who joined before the plugin has been enabled are detected on demand, without
+    // locking the map while querying ViaVersion; concurrent detections yield the same result
+    capability = detectCapability(id);
+    ClientCapability existing = capabilities.putIfAbsent(id, capability);
+    return existing == null ? capability : existing;
+  }
+
+  /**
+   * Release the capability of a player who quit, to be called by the thread which reads
+   * capabilities, after which it must no longer request the player's capability
+   * @param player UUID of the player who quit
+   */
+  public void release(UUID player) {
+    capabilities.remove(player);
+  }
+
+  private ClientCapability detectCapability(UUID player) {
+    if (M_VIA__GET_API == null || M_VIA_API__GET_PLAYER_VERSION == null)
+      return ClientCapability.HEX_COLORS;
+
+    try {
+      int protocolVersion = (int) M_VIA_API__GET_PLAYER_VERSION.invoke(M_VIA__GET_API.invoke(null), player);
+
+      if (protocolVersion >= 0 && protocolVersion < HEX_COLORS_PROTOCOL_VERSION)
+        return ClientCapability.LEGACY_COLORS;
+    } catch (Exception e) {
+      logger.logError(e);
+    }
+
+    return ClientCapability.HEX_COLORS;
+  }
+
+  @EventHandler(priority = EventPriority.MONITOR)
+  public void onJoin(PlayerJoinEvent event) {
+    getCapability(event.getPlayer());
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 BlvckBytes
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.blvckbytes.animateditemplayground;
+
+/**
+ * Reduces a sequence of per-character colors to a limited number of uniformly colored
+ * segments, while keeping the visible difference as small as possible.
+ * <p>
+ * Runs of equal colors form the initial segments. As long as there are too many, the
+ * two neighbours which are cheapest to merge are combined, where the cost is the increase
+ * in squared OKLab error (Ward's criterion), and a merged segment takes on the mean of
+ * it's characters' colors in OKLab. Instances are not thread-safe.
+ */
+public class ColorQuantizer {
+
+  private double[] labSums;
+  private int[] counts, ends;
+
+  public ColorQuantizer() {
+    this.labSums = new double[0];
+    this.counts = new int[0];
+    this.ends = new int[0];
+  }
+
+  /**
+   * Quantize colors into segments
+   * @param colors Colors of all characters, packed as 0xRRGGBB
+   * @param length Number of colors to consider, starting at index zero
+   * @param maxSegments Maximum number of resulting segments, at least one
+   * @param segmentEnds Output, receiving the exclusive end index of each segment
+   * @param segmentColors Output, receiving the packed color of each segment
+   * @return Number of segments written into the outputs
+   */
+  public int quantize(int[] colors, int length, int maxSegments, int[] segmentEnds, int[] segmentColors) {
+    if (length == 0)
+      return 0;
+
+    maxSegments = Math.max(1, maxSegments);
+    ensureCapacity(length);
+
+    // Build the initial segments from runs of equal colors
+    int size = 0;
+    for (int i = 0; i < length; i++) {
+      if (i > 0 && colors[i] == colors[i - 1]) {
+        counts[size - 1]++;
+        ends[size - 1] = i + 1;
+        continue;
+      }
+
+      OkLab.fromRgb(colors[i], labSums, size * 3);
+      counts[size] = 1;
+      ends[size] = i + 1;
+      size++;
+    }
+
+    // Runs of equal colors are kept as they are, as long as they fit
+    if (size <= maxSegments) {
+      for (int i = 0; i < size; i++) {
+        segmentEnds[i] = ends[i];
+        segmentColors[i] = colors[ends[i] - 1];
+      }
+      return size;
+    }
+
+    // Expand the first color's coordinates to sums, which is what merging operates on
+    for (int i = 0; i < size; i++) {
+      for (int j = 0; j < 3; j++)
+        labSums[i * 3 + j] *= counts[i];
+    }
+
+    while (size > maxSegments) {
+      int cheapest = 0;
+      double cheapestCost = Double.MAX_VALUE;
+
+      for (int i = 0; i < size - 1; i++) {
+        double cost = mergeCost(i, i + 1);
+
+        if (cost < cheapestCost) {
+          cheapestCost = cost;
+          cheapest = i;
+        }
+      }
+
+      // Merge the right neighbour into the cheapest segment and close the gap
+      int next = cheapest + 1;
+      for (int j = 0; j < 3; j++)
+        labSums[cheapest * 3 + j] += labSums[next * 3 + j];
+
+      counts[cheapest] += counts[next];
+      ends[cheapest] = ends[next];
+
+      System.arraycopy(labSums, (next + 1) * 3, labSums, next * 3, (size - next - 1) * 3);
+      System.arraycopy(counts, next + 1, counts, next, size - next - 1);
+      System.arraycopy(ends, next + 1, ends, next, size - next - 1);
+      size--;
+    }
+
+    for (int i = 0; i < size; i++) {
+      int count = counts[i];
+      segmentEnds[i] = ends[i];
+      segmentColors[i] = OkLab.toRgb(labSums[i * 3] / count, labSums[i * 3 + 1] / count, labSums[i * 3 + 2] / count);
+    }
+
+    return size;
+  }
+
+  private double mergeCost(int a, int b) {
+    int countA = counts[a], countB = counts[b];
+    double distance = 0;
+
+    for (int j = 0; j < 3; j++) {
+      double delta = labSums[a * 3 + j] / countA - labSums[b * 3 + j] / countB;
+      distance += delta * delta;
+    }
+
+    return distance * countA * countB / (countA + countB);
+  }
+
+  private void ensureCapacity(int length) {
+    if (counts.length >= length)
+      return;
+
+    labSums = new double[length * 3];
+    counts = new int[length];
+    ends = new int[length];
+  }
+}
@@ -0,0 +1,384 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 BlvckBytes
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.blvckbytes.animateditemplayground;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A gradient in it's packed form: stops are kept in parallel primitive arrays, sorted
+ * by their offset ascending, with colors packed as {@code 0xRRGGBB}. Sampling in sRGB
+ * yields exactly the same colors as {@link GradientGenerator#getGradientPoint}.
+ * <p>
+ * Each stop's OKLab coordinates are computed once when it's added, so that
+ * sampling in OKLab doesn't need to convert the stops' colors again.
+ */
+public class CompiledGradient {
+
+  private static final int DEFAULT_CAPACITY = 4;
+  private static final int WHITE = 0xFFFFFF;
+
+  private int[] colors;
+  private double[] offsets;
+  private int size;
+
+  // OKLab coordinates of every stop's color, three per stop
+  private double[] labs;
+
+  private GradientInterpolation interpolation;
+
+  /**
+   * Create a new empty gradient
+   */
+  public CompiledGradient() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Create a new empty gradient with room for a given number of stops
+   * @param capacity Number of stops to reserve space for
+   */
+  public CompiledGradient(int capacity) {
+    this.colors = new int[Math.max(1, capacity)];
+    this.offsets = new double[this.colors.length];
+    this.labs = new double[this.colors.length * 3];
+    this.interpolation = GradientInterpolation.SRGB;
+  }
+
+  /**
+   * Compile a list of gradient points into it's packed form
+   * @param points Points making up the gradient, in any order
+   * @return Compiled gradient
+   */
+  public static CompiledGradient compile(List<GradientPoint> points) {
+    return compile(points, GradientInterpolation.SRGB);
+  }
+
+  /**
+   * Compile a list of gradient points into it's packed form
+   * @param points Points making up the gradient, in any order
+   * @param interpolation Color space to interpolate in
+   * @return Compiled gradient
+   */
+  public static CompiledGradient compile(List<GradientPoint> points, GradientInterpolation interpolation) {
+    CompiledGradient result = new CompiledGradient(points.size());
+    result.setInterpolation(interpolation);
+
+    for (GradientPoint point : points)
+      result.addStop(point.color.getRGB() & 0xFFFFFF, point.offset);
+
+    return result;
+  }
+
+  /**
+   * Remove all stops while keeping the allocated capacity
+   */
+  public void clear() {
+    this.size = 0;
+  }
+
+  /**
+   * Add a new stop, keeping the stops sorted by their offset ascending. Stops
+   * with equal offsets keep the order in which they have been added.
+   * @param color Packed color in the format 0xRRGGBB
+   * @param offset Offset between 0 and 1 on the total gradient
+   */
+  public void addStop(int color, double offset) {
+    if (size == colors.length) {
+      colors = Arrays.copyOf(colors, size * 2);
+      offsets = Arrays.copyOf(offsets, size * 2);
+      labs = Arrays.copyOf(labs, size * 2 * 3);
+    }
+
+    // Shift all stops with a greater offset up by one
+    int index = size;
+    while (index > 0 && offsets[index - 1] > offset) {
+      colors[index] = colors[index - 1];
+      offsets[index] = offsets[index - 1];
+      System.arraycopy(labs, (index - 1) * 3, labs, index * 3, 3);
+      index--;
+    }
+
+    colors[index] = color;
+    offsets[index] = offset;
+
+    OkLab.fromRgb(color, labs, index * 3);
+
+    size++;
+  }
+
+  /**
+   * Set the color space to interpolate in when sampling
+   * @param interpolation Color space to interpolate in
+   */
+  public void setInterpolation(GradientInterpolation interpolation) {
+    this.interpolation = interpolation;
+  }
+
+  public GradientInterpolation getInterpolation() {
+    return interpolation;
+  }
+
+  /**
+   * Move an existing stop, which must not pass any of it's neighbours
+   * @param index Index of the stop
+   * @param offset New offset between 0 and 1 on the total gradient
+   */
+  public void setOffset(int index, double offset) {
+    checkIndex(index);
+    offsets[index] = offset;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public int getColor(int index) {
+    checkIndex(index);
+    return colors[index];
+  }
+
+  public double getOffset(int index) {
+    checkIndex(index);
+    return offsets[index];
+  }
+
+  /**
+   * Get a color point on this gradient
+   * @param percentage Percentage to pick the color at
+   * @return Picked color, packed as 0xRRGGBB
+   */
+  public int sample(double percentage) {
+    // No colors present, print all white
+    if (size == 0)
+      return WHITE;
+
+    // Only one color present
+    if (size == 1)
+      return colors[0];
+
+    // Quick exit: The first n percent are the first color statically
+    if (percentage <= offsets[0])
+      return colors[0];
+
+    // Quick exit: The last (1 - n) percent are the last color statically
+    int last = size - 1;
+    if (percentage >= offsets[last])
+      return colors[last];
+
+    // Find the two nearest stops around the percentage, exactly as getGradientPoint does
+    int a = 0, b = last;
+
+    for (int i = 1; i < last; i++) {
+      double offset = offsets[i];
+
+      if (offset < percentage && offset > offsets[a])
+        a = i;
+
+      if (offset >= percentage && offset < offsets[b])
+        b = i;
+    }
+
+    // Relativize the percentage to that smaller gradient section
+    return interpolate(a, b, (percentage - offsets[a]) / (offsets[b] - offsets[a]));
+  }
+
+  /**
+   * Sample the colors of a whole text at once, where character i is sampled at
+   * {@code (i + 1) / length}, exactly as {@link #sample(double)} would. As the percentages
+   * are ascending, the surrounding stops are tracked instead of being searched per character.
+   * @param length Length of the whole text
+   * @param target Array to write the packed colors into
+   * @param targetOffset Index within the target to write the first color at
+   */
+  public void sampleAll(int length, int[] target, int targetOffset) {
+    sampleRange(0, length, length, target, targetOffset);
+  }
+
+  /**
+   * Sample the colors of a range of characters within a text, where character i is
+   * sampled at {@code (i + 1) / length}, exactly as {@link #sample(double)} would
+   * @param from Index of the first character, inclusive
+   * @param to Index of the last character, exclusive
+   * @param length Length of the whole text
+   * @param target Array to write the packed colors into
+   * @param targetOffset Index within the target to write the color of the first character at
+   */
+  public void sampleRange(int from, int to, int length, int[] target, int targetOffset) {
+    int shift = targetOffset - from;
+
+    if (size <= 1) {
+      Arrays.fill(target, from + shift, to + shift, size == 0 ? WHITE : colors[0]);
+      return;
+    }
+
+    int last = size - 1;
+
+    // Index of the first stop with an offset greater or equal to the current percentage
+    int upper = 1;
+    int a = -1, b = -1;
+
+    int i = from;
+    while (i < to) {
+      double percentage = (i + 1D) / length;
+
+      // Quick exits: everything outside of the outermost stops is their color statically
+      if (percentage <= offsets[0] || percentage >= offsets[last]) {
+        target[i + shift] = percentage <= offsets[0] ? colors[0] : colors[last];
+        i++;
+        continue;
+      }
+
+      if (offsets[upper] < percentage || a < 0) {
+        while (offsets[upper] < percentage)
+          upper++;
+
+        // Ties are resolved just like the search within sample() does, which picks the first
+        // stop of the group below, and the first stop of the group above, except for the last
+        a = upper - 1;
+        while (a > 0 && offsets[a - 1] == offsets[a])
+          a--;
+
+        b = offsets[upper] == offsets[last] ? last : upper;
+      }
+
+      // All characters up to the next stop share the same section
+      int runEnd = i + 1;
+      while (runEnd < to && (runEnd + 1D) / length <= offsets[upper] && (runEnd + 1D) / length < offsets[last])
+        runEnd++;
+
+      if (interpolation == GradientInterpolation.SRGB)
+        GradientKernel.interpolateSrgb(target, i + shift, i, runEnd, length, offsets[a], offsets[b], colors[a], colors[b]);
+
+      else {
+        for (int j = i; j < runEnd; j++)
+          target[j + shift] = interpolateOkLab(a, b, ((j + 1D) / length - offsets[a]) / (offsets[b] - offsets[a]));
+      }
+
+      i = runEnd;
+    }
+  }
+
+  private int interpolate(int a, int b, double percentage) {
+    if (interpolation == GradientInterpolation.OKLAB)
+      return interpolateOkLab(a, b, percentage);
+
+    return GradientKernel.interpolateSrgb(colors[a], colors[b], percentage);
+  }
+
+  private int interpolateOkLab(int a, int b, double percentage) {
+    // Hit the stop exactly, which would otherwise be subject to rounding
+    if (percentage >= 1)
+      return colors[b];
+
+    int labA = a * 3, labB = b * 3;
+
+    return OkLab.toRgb(
+      labs[labA]     + percentage * (labs[labB]     - labs[labA]),
+      labs[labA + 1] + percentage * (labs[labB + 1] - labs[labA + 1]),
+      labs[labA + 2] + percentage * (labs[labB + 2] - labs[labA + 2])
+    );
+  }
+
+  /**
+   * Create an independent copy of this gradient, which is trimmed to it's size
+   * @return Copy of this gradient
+   */
+  public CompiledGradient copy() {
+    CompiledGradient result = new CompiledGradient(size);
+    System.arraycopy(colors, 0, result.colors, 0, size);
+    System.arraycopy(offsets, 0, result.offsets, 0, size);
+    System.arraycopy(labs, 0, result.labs, 0, size * 3);
+    result.size = size;
+    result.interpolation = interpolation;
+    return result;
+  }
+
+  /**
+   * Convert this gradient back into a list of gradient points
+   * @return List of points, sorted by their offset ascending
+   */
+  public List<GradientPoint> toPoints() {
+    List<GradientPoint> result = new ArrayList<>(size);
+
+    for (int i = 0; i < size; i++)
+      result.add(new GradientPoint(new Color(colors[i]), offsets[i]));
+
+    return result;
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= size)
+      throw new IndexOutOfBoundsException("Stop index " + index + " out of bounds for size " + size);
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other)
+      return true;
+
+    if (!(other instanceof CompiledGradient))
+      return false;
+
+    CompiledGradient gradient = (CompiledGradient) other;
+
+    if (size != gradient.size || interpolation != gradient.interpolation)
+      return false;
+
+    for (int i = 0; i < size; i++) {
+      if (colors[i] != gradient.colors[i] || Double.compare(offsets[i], gradient.offsets[i]) != 0)
+        return false;
+    }
+
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    int result = interpolation.hashCode();
+
+    for (int i = 0; i < size; i++) {
+      result = 31 * result + colors[i];
+      result = 31 * result + Double.hashCode(offsets[i]);
+    }
+
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder("CompiledGradient { interpolation=" + interpolation + ", ");
+
+    for (int i = 0; i < size; i++) {
+      if (i != 0)
+        result.append(", ");
+      result.append(String.format("#%06x:", colors[i])).append(offsets[i]);
+    }
+
+    return result.append(" }").toString();
+  }
+}
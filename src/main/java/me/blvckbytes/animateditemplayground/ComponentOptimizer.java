@@ -0,0 +1,351 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 BlvckBytes
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.blvckbytes.animateditemplayground;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Normalizes component trees to shrink their serialized form without changing how they render.
+ * <p>
+ * The tree is flattened into runs of text with their effective (inherited) style, empty runs
+ * are dropped and neighbouring runs of equal style are merged, as long as the former run
+ * contains no legacy sequences. The runs are then attached
+ * below a single head which carries all style properties shared by every run, while each
+ * run only keeps the properties it doesn't already inherit from that head.
+ * <p>
+ * Runs which only differ from the head in color and formatting are emitted as
+ * {@link TextSpan}s. Components other than {@link TextComponent} and {@link TextSpan} are
+ * kept as opaque runs, as their inner structure is unknown; they're wrapped to retain their
+ * inherited style.
+ * <p>
+ * The animation doesn't run its frames through this, as {@link AnimatedTextTemplate} writes
+ * their JSON directly, without any tree to optimize. Gradient frames also have little to merge,
+ * as only neighbouring characters of equal color do, which saves about 4% on the item name.
+ * It's meant for static, authored components like parsed legacy text.
+ */
+public class ComponentOptimizer {
+
+  @Getter
+  @AllArgsConstructor
+  public static class Result {
+
+    // Optimized component, rendering exactly like the input
+    private final IComponent component;
+
+    // Number of UTF-8 bytes of the input's and the output's JSON representation
+    private final int bytesBefore, bytesAfter;
+
+    public int getBytesSaved() {
+      return bytesBefore - bytesAfter;
+    }
+  }
+
+  /**
+   * Style properties which are inherited by all siblings of a component
+   */
+  @AllArgsConstructor
+  private static class Style {
+    @Nullable String color;
+    int formatting;
+    @Nullable ClickAction clickAction;
+    @Nullable String clickValue;
+    @Nullable HoverAction hoverAction;
+    @Nullable IComponent hoverValue;
+
+    private static final Style EMPTY = new Style(null, 0, null, null, null, null);
+
+    /**
+     * Derive the effective style of a component with this style as it's parent's style
+     */
+    private Style inherit(TextComponent component) {
+      boolean hasClick = component.getClickAction() != null && component.getClickValue() != null;
+      boolean hasHover = component.getHoverAction() != null && component.getHoverValue() != null;
+
+      return new Style(
+        component.getColor() != null ? component.getColor() : color,
+        formatting | formattingMask(component.getFormatting()),
+        hasClick ? component.getClickAction() : clickAction,
+        hasClick ? component.getClickValue() : clickValue,
+        hasHover ? component.getHoverAction() : hoverAction,
+        hasHover ? component.getHoverValue() : hoverValue
+      );
+    }
+
+    /**
+     * Derive the effective style of a span with this style as it's parent's style
+     */
+    private Style inherit(TextSpan span) {
+      return new Style(
+        span.hasColor() ? HexColorEncoder.toString(span.getColor()) : color,
+        formatting | span.getFormatting(),
+        clickAction, clickValue, hoverAction, hoverValue
+      );
+    }
+
+    /**
+     * Get the properties which all styles have in common
+     */
+    private static Style common(List<Run> runs) {
+      Style first = runs.get(0).style;
+      Style result = new Style(first.color, first.formatting, first.clickAction, first.clickValue, first.hoverAction, first.hoverValue);
+
+      for (int i = 1; i < runs.size(); i++) {
+        Style other = runs.get(i).style;
+
+        if (!Objects.equals(result.color, other.color))
+          result.color = null;
+
+        result.formatting &= other.formatting;
+
+        if (result.clickAction != other.clickAction || !Objects.equals(result.clickValue, other.clickValue)) {
+          result.clickAction = null;
+          result.clickValue = null;
+        }
+
+        if (result.hoverAction != other.hoverAction || result.hoverValue != other.hoverValue) {
+          result.hoverAction = null;
+          result.hoverValue = null;
+        }
+      }
+
+      return result;
+    }
+
+    /**
+     * Apply all properties which are not already inherited from the parent to a component
+     */
+    private void applyTo(TextComponent component, Style parent) {
+      int formatting = this.formatting & ~parent.formatting;
+
+      for (TextFormatting fmt : TextFormatting.values) {
+        if ((formatting & (1 << fmt.ordinal())) != 0)
+          component.toggleFormatting(fmt, true);
+      }
+
+      if (color != null && !color.equals(parent.color))
+        component.setColor(color);
+
+      if (clickAction != null && (clickAction != parent.clickAction || !Objects.equals(clickValue, parent.clickValue)))
+        component.setClick(clickAction, clickValue);
+
+      if (hoverAction != null && hoverValue != null && (hoverAction != parent.hoverAction || hoverValue != parent.hoverValue))
+        component.setHover(hoverAction, hoverValue);
+    }
+
+    /**
+     * Create a span carrying all properties which are not already inherited from the parent,
+     * if these are limited to a lowercase hex color and formatting
+     * @return Span, null if the properties can't be expressed by a span
+     */
+    private @Nullable TextSpan toSpan(String text, Style parent) {
+      boolean clickInherited = clickAction == null || (clickAction == parent.clickAction && Objects.equals(clickValue, parent.clickValue));
+      boolean hoverInherited = hoverAction == null || hoverValue == null || (hoverAction == parent.hoverAction && hoverValue == parent.hoverValue);
+
+      if (!clickInherited || !hoverInherited)
+        return null;
+
+      int packedColor = TextSpan.NO_COLOR;
+
+      if (color != null && !color.equals(parent.color)) {
+        packedColor = parseHexColor(color);
+
+        // Colors of other notations have to be kept as they are
+        if (packedColor == TextSpan.NO_COLOR)
+          return null;
+      }
+
+      return new TextSpan(text, packedColor, this.formatting & ~parent.formatting);
+    }
+
+    private boolean sameAs(Style other) {
+      return (
+        Objects.equals(color, other.color) &&
+        formatting == other.formatting &&
+        clickAction == other.clickAction &&
+        Objects.equals(clickValue, other.clickValue) &&
+        hoverAction == other.hoverAction &&
+        hoverValue == other.hoverValue
+      );
+    }
+  }
+
+  /**
+   * A run of text or an opaque component, with it's effective style
+   */
+  @AllArgsConstructor
+  private static class Run {
+    @Nullable StringBuilder text;
+    @Nullable IComponent opaque;
+    Style style;
+  }
+
+  /**
+   * Optimize a component tree, leaving the input untouched
+   * @param component Head of the tree to optimize
+   * @return Result, holding the optimized tree as well as the byte savings
+   */
+  public Result optimize(IComponent component) {
+    int bytesBefore = measure(component);
+
+    // Spans are as compact as it gets, unknown component types are left as they are
+    if (!(component instanceof TextComponent))
+      return new Result(component, bytesBefore, bytesBefore);
+
+    List<Run> runs = new ArrayList<>();
+    flatten((TextComponent) component, Style.EMPTY, runs);
+
+    IComponent result = rebuild(runs);
+    int bytesAfter = measure(result);
+
+    // Never hand out a result which got bigger, which may happen with opaque wrappers
+    if (bytesAfter >= bytesBefore)
+      return new Result(component, bytesBefore, bytesBefore);
+
+    return new Result(result, bytesBefore, bytesAfter);
+  }
+
+  private void flatten(TextComponent component, Style parentStyle, List<Run> runs) {
+    Style style = parentStyle.inherit(component);
+
+    String text = component.getText();
+    if (text != null && !text.isEmpty())
+      appendText(runs, text, style);
+
+    for (IComponent sibling : component.getSiblings()) {
+      if (sibling instanceof TextComponent) {
+        flatten((TextComponent) sibling, style, runs);
+        continue;
+      }
+
+      if (sibling instanceof TextSpan) {
+        TextSpan span = (TextSpan) sibling;
+
+        if (!span.getText().isEmpty())
+          appendText(runs, span.getText(), style.inherit(span));
+
+        continue;
+      }
+
+      runs.add(new Run(null, sibling, style));
+    }
+  }
+
+  private void appendText(List<Run> runs, String text, Style style) {
+    Run last = runs.isEmpty() ? null : runs.get(runs.size() - 1);
+
+    // Merge into the previous run if it renders in the same style, unless it contains legacy
+    // sequences, as their effect would then carry over to the appended text
+    if (last != null && last.text != null && last.text.indexOf("§") < 0 && last.style.sameAs(style)) {
+      last.text.append(text);
+      return;
+    }
+
+    runs.add(new Run(new StringBuilder(text), null, style));
+  }
+
+  private IComponent rebuild(List<Run> runs) {
+    if (runs.isEmpty())
+      return new TextComponent("");
+
+    // A single run of text doesn't need a separate head
+    if (runs.size() == 1 && runs.get(0).text != null) {
+      Run run = runs.get(0);
+      TextComponent result = new TextComponent(run.text.toString());
+      run.style.applyTo(result, Style.EMPTY);
+      return result;
+    }
+
+    Style common = Style.common(runs);
+
+    TextComponent head = new TextComponent("");
+    common.applyTo(head, Style.EMPTY);
+
+    for (Run run : runs) {
+      // Opaque components which inherit the head's style don't need a wrapper
+      if (run.opaque != null && run.style.sameAs(common)) {
+        head.addSibling(run.opaque);
+        continue;
+      }
+
+      if (run.opaque == null && run.text != null) {
+        TextSpan span = run.style.toSpan(run.text.toString(), common);
+
+        if (span != null) {
+          head.addSibling(span);
+          continue;
+        }
+      }
+
+      TextComponent child = new TextComponent(run.text == null ? "" : run.text.toString());
+      run.style.applyTo(child, common);
+
+      if (run.opaque != null)
+        child.addSibling(run.opaque);
+
+      head.addSibling(child);
+    }
+
+    return head;
+  }
+
+  private static int measure(IComponent component) {
+    return component.toJson(false).toString().getBytes(StandardCharsets.UTF_8).length;
+  }
+
+  private static int formattingMask(boolean[] formatting) {
+    return TextSpan.formattingMask(formatting);
+  }
+
+  /**
+   * Parse a color of the exact notation #rrggbb, as emitted by {@link HexColorEncoder}
+   * @return Packed color, TextSpan.NO_COLOR if the notation differs
+   */
+  private static int parseHexColor(String color) {
+    if (color.length() != HexColorEncoder.ENCODED_LENGTH || color.charAt(0) != '#')
+      return TextSpan.NO_COLOR;
+
+    int result = 0;
+
+    for (int i = 1; i < HexColorEncoder.ENCODED_LENGTH; i++) {
+      char c = color.charAt(i);
+
+      if (c >= '0' && c <= '9')
+        result = (result << 4) | (c - '0');
+      else if (c >= 'a' && c <= 'f')
+        result = (result << 4) | (c - 'a' + 10);
+      else
+        return TextSpan.NO_COLOR;
+    }
+
+    return result;
+  }
+}
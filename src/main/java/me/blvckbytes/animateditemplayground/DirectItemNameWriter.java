@@ -0,0 +1,115 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 BlvckBytes
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package me.blvckbytes.animateditemplayground;
+
+import me.blvckbytes.animateditemplayground.AccessorFactory.IFieldGetter;
+import me.blvckbytes.animateditemplayground.AccessorFactory.IStaticFunction;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Map;
+
+/**
+ * Writes an item's display name straight into the tag of the server's item stack which backs
+ * a {@code CraftItemStack}, following {@code handle -> tag -> display -> Name}. This skips
+ * {@link ItemStack#getItemMeta()} and {@link ItemStack#setItemMeta}, which copy all of the
+ * item's data into a meta and back again, so that the cost of a write doesn't depend on how
+ * much other data, like enchantments, lore or attributes, the item carries.
+ * <p>
+ * Only names which already exist are replaced. Writes happen off the main thread, while the
+ * main thread copies and serializes the same tag, which is only safe as long as the compound's
+ * map isn't structurally modified; replacing the value of an existing key isn't a structural
+ * modification, while adding one is. Items without a name have to be named through their meta
+ * once, which creates it.
+ */
+public class DirectItemNameWriter {
+
+  private static final String DISPLAY_KEY = "display", NAME_KEY = "Name";
+
+  private final Class<?> craftItemStackClass, compoundClass;
+  private final IFieldGetter F_CRAFT_ITEM_STACK__HANDLE, F_ITEM_STACK__TAG, F_NBT_TAG_COMPOUND__MAP;
+  private final IStaticFunction M_NBT_TAG_STRING__VALUE_OF;
+
+  /**
+   * Create a new writer from the resolved members of the chain
+   * @param craftItemStackClass CraftItemStack's class, as only these are backed by a server item stack
+   * @param compoundClass Class of NBT compounds
+   * @param handle Getter of the server item stack backing a CraftItemStack
+   * @param tag Getter of a server item stack's tag compound
+   * @param map Getter of a compound's map of entries
+   * @param stringValueOf Static factory of NBT strings
+   */
+  public DirectItemNameWriter(
+    Class<?> craftItemStackClass,
+    Class<?> compoundClass,
+    IFieldGetter handle,
+    IFieldGetter tag,
+    IFieldGetter map,
+    IStaticFunction stringValueOf
+  ) {
+    this.craftItemStackClass = craftItemStackClass;
+    this.compoundClass = compoundClass;
+    this.F_CRAFT_ITEM_STACK__HANDLE = handle;
+    this.F_ITEM_STACK__TAG = tag;
+    this.F_NBT_TAG_COMPOUND__MAP = map;
+    this.M_NBT_TAG_STRING__VALUE_OF = stringValueOf;
+  }
+
+  /**
+   * Try to write an item's display name directly
+   * @param item Item to name
+   * @param nameJson Name as a serialized JSON component
+   * @return True if the name has been replaced, false if the item has to be named through it's meta
+   */
+  @SuppressWarnings("unchecked")
+  public boolean tryWrite(ItemStack item, String nameJson) {
+    // Plain Bukkit stacks are not backed by a server item stack
+    if (!craftItemStackClass.isInstance(item))
+      return false;
+
+    Object handle = F_CRAFT_ITEM_STACK__HANDLE.get(item);
+
+    if (handle == null)
+      return false;
+
+    Object tag = F_ITEM_STACK__TAG.get(handle);
+
+    if (tag == null)
+      return false;
+
+    Object display = ((Map<String, Object>) F_NBT_TAG_COMPOUND__MAP.get(tag)).get(DISPLAY_KEY);
+
+    if (!compoundClass.isInstance(display))
+      return false;
+
+    Map<String, Object> displayEntries = (Map<String, Object>) F_NBT_TAG_COMPOUND__MAP.get(display);
+
+    // Adding the name would be a structural modification, racing the main thread's iterations
+    if (!displayEntries.containsKey(NAME_KEY))
+      return false;
+
+    return displayEntries.replace(NAME_KEY, M_NBT_TAG_STRING__VALUE_OF.apply(nameJson)) != null;
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 BlvckBytes
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.blvckbytes.animateditemplayground;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Caches rendered frames for the duration of a tick, keyed by their text and the state of
+ * their gradient, so that equal frames are only rendered once, no matter how many players
+ * view them. Instances are meant to be used by a single render thread.
+ */
+public class FrameCache {
+
+  private static class FrameKey {
+    String text;
+    CompiledGradient gradient;
+
+    private FrameKey(String text, CompiledGradient gradient) {
+      this.text = text;
+      this.gradient = gradient;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof FrameKey))
+        return false;
+
+      FrameKey key = (FrameKey) other;
+      return text.equals(key.text) && gradient.equals(key.gradient);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * text.hashCode() + gradient.hashCode();
+    }
+  }
+
+  private final Map<FrameKey, RenderedFrame> frames;
+
+  // Lookups of the current tick
+  private int hits, misses;
+
+  // Reused key for lookups, which references the caller's live gradient
+  private final FrameKey probe;
+
+  public FrameCache() {
+    this.frames = new HashMap<>();
+    this.probe = new FrameKey("", new CompiledGradient());
+  }
+
+  /**
+   * Drop all frames of the previous tick
+   */
+  public void beginTick() {
+    frames.clear();
+    hits = 0;
+    misses = 0;
+  }
+
+  /**
+   * Get the number of lookups within the current tick which have been served from the cache
+   */
+  public int getHits() {
+    return hits;
+  }
+
+  /**
+   * Get the number of lookups within the current tick which had to render
+   */
+  public int getMisses() {
+    return misses;
+  }
+
+  /**
+   * Get a frame of the current tick, or render it if it's not yet cached
+   * @param text Text of the frame
+   * @param gradient Current state of the gradient applied to the text, which is copied if stored
+   * @param renderer Renderer to invoke on a cache miss
+   * @return Cached or newly rendered frame
+   */
+  public RenderedFrame getOrRender(String text, CompiledGradient gradient, Supplier<RenderedFrame> renderer) {
+    probe.text = text;
+    probe.gradient = gradient;
+
+    RenderedFrame frame = frames.get(probe);
+
+    if (frame != null) {
+      hits++;
+      return frame;
+    }
+
+    misses++;
+    frame = renderer.get();
+    frames.put(new FrameKey(text, gradient.copy()), frame);
+    return frame;
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 BlvckBytes
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package me.blvckbytes.animateditemplayground;
+
+import lombok.Getter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caches the colors of all characters of a text for a given gradient and text length, as
+ * the color of character i only depends on {@code (i + 1) / length}, not on the characters
+ * themselves. Texts of equal length, like padded player names, thereby share their colors,
+ * as do repeating states of an animated gradient.
+ * <p>
+ * The cache is bounded and evicts the least recently used entries first. All
+ * methods are synchronized, as generators may be shared between threads.
+ */
+public class GradientColorCache {
+
+  public static final int DEFAULT_CAPACITY = 256, DEFAULT_MAX_LENGTH = 256;
+
+  /**
+   * Colors of all characters of a text, which are shared and thereby must not be mutated
+   */
+  @Getter
+  public static class Colors {
+
+    // Packed as 0xRRGGBB, one per character
+    private final int[] colors;
+
+    // Colors encoded as #rrggbb, one per character
+    private final String[] hexColors;
+
+    private Colors(int[] colors) {
+      this.colors = colors;
+      this.hexColors = new String[colors.length];
+
+      for (int i = 0; i < colors.length; i++)
+        hexColors[i] = HexColorEncoder.toString(colors[i]);
+    }
+  }
+
+  private static class EntryKey {
+    CompiledGradient gradient;
+    int length;
+
+    private EntryKey(CompiledGradient gradient, int length) {
+      this.gradient = gradient;
+      this.length = length;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof EntryKey))
+        return false;
+
+      EntryKey key = (EntryKey) other;
+      return length == key.length && gradient.equals(key.gradient);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * gradient.hashCode() + length;
+    }
+  }
+
+  private final int maxLength;
+  private final Map<EntryKey, Colors> entries;
+
+  // Reused key for lookups, which references the caller's live gradient
+  private final EntryKey probe;
+
+  private long hits, misses;
+
+  public GradientColorCache() {
+    this(DEFAULT_CAPACITY, DEFAULT_MAX_LENGTH);
+  }
+
+  /**
+   * Create a new cache
+   * @param capacity Maximum number of entries to keep
+   * @param maxLength Maximum text length to cache colors for, longer texts are sampled on every request
+   */
+  public GradientColorCache(int capacity, int maxLength) {
+    this.maxLength = maxLength;
+    this.probe = new EntryKey(new CompiledGradient(), 0);
+
+    // Access-ordered, so that the eldest entry is always the least recently used one
+    this.entries = new LinkedHashMap<EntryKey, Colors>(16, .75F, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<EntryKey, Colors> eldest) {
+        return size() > capacity;
+      }
+    };
+  }
+
+  /**
+   * Get the colors of all characters of a text, sampling them on a cache miss
+   * @param gradient Current state of the gradient, which is copied if stored
+   * @param length Length of the text
+   * @return Colors of all characters
+   */
+  public synchronized Colors get(CompiledGradient gradient, int length) {
+    if (length > maxLength) {
+      misses++;
+      return sample(gradient, length);
+    }
+
+    probe.gradient = gradient;
+    probe.length = length;
+
+    Colors entry = entries.get(probe);
+
+    if (entry != null) {
+      hits++;
+      return entry;
+    }
+
+    misses++;
+    entry = sample(gradient, length);
+    entries.put(new EntryKey(gradient.copy(), length), entry);
+    return entry;
+  }
+
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  public synchronized void clear() {
+    entries.clear();
+  }
+
+  private static Colors sample(CompiledGradient gradient, int length) {
+    int[] colors = new int[length];
+    gradient.sampleAll(length, colors, 0);
+    return new Colors(colors);
+  }
+}
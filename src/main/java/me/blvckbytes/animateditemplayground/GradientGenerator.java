@@ -24,14 +24,52 @@
 
 package me.blvckbytes.animateditemplayground;
 
+import org.jetbrains.annotations.Nullable;
+
 import java.awt.*;
-import java.util.ArrayList;
-import java.util.Comparator;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
 import java.util.List;
 import java.util.Optional;
 
 public class GradientGenerator {
 
+  // {"text":"","extra":[ and ]} minus the single missing separator of the first segment
+  private static final int HEAD_JSON_BYTES = 20 + 2 - 1;
+
+  // {"text":" and ","color":"#rrggbb"} around each segment's text
+  private static final int SEGMENT_JSON_BYTES = 9 + 20;
+
+  // Number of characters read and colored at once when streaming a gradient
+  private static final int STREAM_CHUNK_LENGTH = 1024;
+
+  // Strings of all single Latin-1 characters, as gradients mostly color these one by one
+  private static final String[] LATIN1_STRINGS = new String[256];
+
+  static {
+    for (int i = 0; i < LATIN1_STRINGS.length; i++)
+      LATIN1_STRINGS[i] = String.valueOf((char) i);
+  }
+
+  private final GradientColorCache colorCache;
+
+  public GradientGenerator() {
+    this(new GradientColorCache());
+  }
+
+  /**
+   * Create a new generator
+   * @param colorCache Cache of the colors of each gradient and text length, which may be shared
+   */
+  public GradientGenerator(GradientColorCache colorCache) {
+    this.colorCache = colorCache;
+  }
+
+  public GradientColorCache getColorCache() {
+    return colorCache;
+  }
+
   /**
    * Create a new gradient text from a plain string
    * @param text Plain string to add a gradient to
@@ -42,27 +80,207 @@ public class GradientGenerator {
     String text,
     List<GradientPoint> colors
   ) {
+    return gradientize(text, CompiledGradient.compile(colors));
+  }
+
+  /**
+   * Create a new gradient text from a plain string
+   * @param text Plain string to add a gradient to
+   * @param gradient Compiled gradient to apply
+   * @return String with applied gradient as a component
+   */
+  public TextComponent gradientize(
+    String text,
+    CompiledGradient gradient
+  ) {
+    PipelineEvents.Gradientize event = new PipelineEvents.Gradientize();
+    event.begin();
+
     TextComponent res = new TextComponent("");
 
-    // Iterate all characters of the string
-    char[] chars = text.toCharArray();
-    for (int i = 0; i < chars.length; i++) {
-      // How far the loop is into the string
-      double percentage = (i + 1D) / chars.length;
+    // Colors only depend on the gradient and the length, so texts of equal length share them
+    int length = text.length();
+    GradientColorCache.Colors colors = colorCache.get(gradient, length);
+
+    for (int i = 0; i < length; i++) {
+      // Create a new span containing only the current character, colored at it's point within the gradient
+      res.addSibling(new TextSpan(charString(text.charAt(i)), colors.getColors()[i], 0, colors.getHexColors()[i]));
+    }
+
+    commitGradientize(event, length, gradient, length);
+    return res;
+  }
+
+  /**
+   * Create a new gradient text from a plain string, merging neighbouring characters into
+   * uniformly colored segments as far as required to stay within the given budget
+   * @param text Plain string to add a gradient to
+   * @param gradient Compiled gradient to apply
+   * @param budget Budget to stay within; the byte budget covers this component's JSON
+   *               only and cannot be undercut by a single segment
+   * @return String with applied gradient as a component
+   */
+  public TextComponent gradientize(
+    String text,
+    CompiledGradient gradient,
+    RenderBudget budget
+  ) {
+    return gradientize(text, gradient, budget, null);
+  }
+
+  /**
+   * Create a new gradient text from a plain string, merging neighbouring characters into
+   * uniformly colored segments as far as required to stay within the given budget
+   * @param text Plain string to add a gradient to
+   * @param gradient Compiled gradient to apply
+   * @param budget Budget to stay within; the byte budget covers this component's JSON
+   *               only and cannot be undercut by a single segment
+   * @param arena Arena to take the scratch arrays from, null to allocate them
+   * @return String with applied gradient as a component
+   */
+  public TextComponent gradientize(
+    String text,
+    CompiledGradient gradient,
+    RenderBudget budget,
+    @Nullable RenderArena arena
+  ) {
+    if (budget.isUnlimited())
+      return gradientize(text, gradient);
+
+    PipelineEvents.Gradientize event = new PipelineEvents.Gradientize();
+    event.begin();
+
+    int length = text.length();
+    int[] colors = colorCache.get(gradient, length).getColors();
 
-      // Create a new component containing only the current character
-      TextComponent curr = new TextComponent(String.valueOf(chars[i]));
+    // Derive the number of segments which fit into the byte budget
+    int maxSegments = budget.getMaxSegments() > 0 ? budget.getMaxSegments() : length;
+    if (budget.getMaxBytes() > 0) {
+      int fixedBytes = HEAD_JSON_BYTES + jsonStringBytes(text);
+      maxSegments = Math.min(maxSegments, (budget.getMaxBytes() - fixedBytes) / (SEGMENT_JSON_BYTES + 1));
+    }
+
+    int[] segmentEnds = arena == null ? new int[length] : arena.ints(length);
+    int[] segmentColors = arena == null ? new int[length] : arena.ints(length);
+    int segments = new ColorQuantizer().quantize(colors, length, maxSegments, segmentEnds, segmentColors);
 
-      // Apply the color at the current point within the gradient
-      Color color = getGradientPoint(colors, percentage);
-      curr.setColor(String.format("#%02x%02x%02x", color.getRed(), color.getGreen(), color.getBlue()));
+    TextComponent res = new TextComponent("");
 
-      res.addSibling(curr);
+    for (int i = 0, begin = 0; i < segments; i++) {
+      res.addSibling(new TextSpan(text.substring(begin, segmentEnds[i]), segmentColors[i]));
+      begin = segmentEnds[i];
     }
 
+    commitGradientize(event, length, gradient, segments);
     return res;
   }
 
+  /**
+   * Apply a gradient to a text of any length, handing uniformly colored segments to a sink
+   * as they are produced, instead of building a component. Only a single chunk of the text
+   * is held in memory at a time, so that the sink may start delivering right away.
+   * @param text Text to add a gradient to
+   * @param gradient Compiled gradient to apply
+   * @param sink Sink to receive the segments
+   * @return Number of segments emitted
+   */
+  public int gradientizeTo(
+    CharSequence text,
+    CompiledGradient gradient,
+    IGradientSink sink
+  ) throws IOException {
+    return gradientizeTo(CharBuffer.wrap(text), text.length(), gradient, sink);
+  }
+
+  /**
+   * Apply a gradient to a text of any length, handing uniformly colored segments to a sink
+   * as they are produced, instead of building a component. Only a single chunk of the text
+   * is held in memory at a time, so that the sink may start delivering right away.
+   * @param text Reader to read the text to add a gradient to from, which is not closed
+   * @param totalLength Total length of the text, which the gradient is spread across; a text
+   *                    which turns out to be shorter ends before reaching the gradient's end
+   * @param gradient Compiled gradient to apply
+   * @param sink Sink to receive the segments
+   * @return Number of segments emitted
+   * @throws IllegalArgumentException If the text is longer than the total length
+   */
+  public int gradientizeTo(
+    Reader text,
+    int totalLength,
+    CompiledGradient gradient,
+    IGradientSink sink
+  ) throws IOException {
+    return gradientizeTo((Readable) text, totalLength, gradient, sink);
+  }
+
+  private int gradientizeTo(
+    Readable text,
+    int totalLength,
+    CompiledGradient gradient,
+    IGradientSink sink
+  ) throws IOException {
+    PipelineEvents.Gradientize event = new PipelineEvents.Gradientize();
+    event.begin();
+
+    CharBuffer chunk = CharBuffer.allocate(STREAM_CHUNK_LENGTH);
+    int[] colors = new int[STREAM_CHUNK_LENGTH];
+
+    // Neighbouring characters of equal color are merged, up to the length of a chunk
+    StringBuilder segment = new StringBuilder(STREAM_CHUNK_LENGTH);
+    int segmentColor = 0, segments = 0, position = 0;
+
+    sink.begin(totalLength);
+
+    while (text.read(chunk) >= 0) {
+      chunk.flip();
+
+      int count = chunk.remaining();
+      if (count > totalLength - position)
+        throw new IllegalArgumentException("The text is longer than it's declared length of " + totalLength);
+
+      // Colors are sampled against the total length, so chunk borders don't alter the gradient
+      gradient.sampleRange(position, position + count, totalLength, colors, 0);
+
+      for (int i = 0; i < count; i++) {
+        if (segment.length() > 0 && (colors[i] != segmentColor || segment.length() == STREAM_CHUNK_LENGTH)) {
+          sink.segment(segment, segmentColor);
+          segment.setLength(0);
+          ++segments;
+        }
+
+        segment.append(chunk.get());
+        segmentColor = colors[i];
+      }
+
+      position += count;
+      chunk.clear();
+    }
+
+    if (segment.length() > 0) {
+      sink.segment(segment, segmentColor);
+      ++segments;
+    }
+
+    sink.end();
+
+    commitGradientize(event, position, gradient, segments);
+    return segments;
+  }
+
+  private static String charString(char c) {
+    return c < LATIN1_STRINGS.length ? LATIN1_STRINGS[c] : String.valueOf(c);
+  }
+
+  private static void commitGradientize(PipelineEvents.Gradientize event, int length, CompiledGradient gradient, int segments) {
+    if (!event.shouldCommit())
+      return;
+
+    event.textLength = length;
+    event.stopCount = gradient.size();
+    event.segmentCount = segments;
+    event.commit();
+  }
+
   /**
    * Get a color point on a linear gradient made up of multiple colors at certain points
    * @param colors Colors making up the gradient (have to be sorted by percentage ascending)
@@ -140,65 +358,40 @@ public class GradientGenerator {
    * @return Parsed notation on success, empty if the notation was malformed
    */
   public Optional<List<GradientPoint>> parseGradientNotation(String notation) {
-    // Not enclosed by angle brackets
-    if (!(notation.startsWith("<") && notation.endsWith(">")))
-      return Optional.empty();
-
-    List<GradientPoint> res = new ArrayList<>();
-
-    // Split on space to get individual color notations
-    String[] colors = notation.substring(1, notation.length() - 1).split(" ");
-
-    for (String color : colors) {
-      // Split on colon to get the color data
-      String[] data = color.split(":");
-
-      // Malformed color notation
-      if (data.length != 2)
-        return Optional.empty();
-
-      // Has to start with # to be a valid hex notation
-      if (!data[0].startsWith("#"))
-        return Optional.empty();
+    CompiledGradient gradient = new GradientNotationParser().parse(notation, 0, notation.length());
 
-      char[] chars = data[0].toCharArray();
-
-      // Only try to parse if there are enough characters available
-      if (chars.length != 6 + 1)
-        return Optional.empty();
-
-      // Try to parse the color's R G and B separately
-      Color c;
-      double percentage;
-      try {
-        c = new Color(
-          Integer.parseInt(chars[1] + "" + chars[2], 16),
-          Integer.parseInt(chars[3] + "" + chars[4], 16),
-          Integer.parseInt(chars[5] + "" + chars[6], 16)
-        );
-
-        percentage = Double.parseDouble(data[1]);
-      }
-
-      // Unparsable color or percentage
-      catch (Exception ignored) {
-        return Optional.empty();
-      }
+    if (gradient == null)
+      return Optional.empty();
 
-      // Percentage out of range
-      if (percentage < 0 || percentage > 1)
-        return Optional.empty();
+    return Optional.of(gradient.toPoints());
+  }
 
-      // Add color point to the list
-      res.add(new GradientPoint(c, percentage));
+  /**
+   * Computes the number of UTF-8 bytes a string occupies as a JSON string value
+   * @param text Text to measure
+   * @return Number of bytes, excluding the surrounding quotes
+   */
+  private static int jsonStringBytes(String text) {
+    int result = 0;
+
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+
+      if (c == '"' || c == '\\' || c == '\b' || c == '\t' || c == '\n' || c == '\f' || c == '\r')
+        result += 2;
+      else if (c < 0x20 || c == '\u2028' || c == '\u2029')
+        result += 6;
+      else if (c < 0x80)
+        result += 1;
+      else if (c < 0x800)
+        result += 2;
+      // Each half of a surrogate pair accounts for two of the four bytes
+      else if (Character.isSurrogate(c))
+        result += 2;
+      else
+        result += 3;
     }
 
-    // Don't accept empty lists
-    if (res.size() == 0)
-      return Optional.empty();
-
-    // Return the list of colors sorted by their percentage
-    res.sort(Comparator.comparingDouble(a -> a.offset));
-    return Optional.of(res);
+    return result;
   }
 }
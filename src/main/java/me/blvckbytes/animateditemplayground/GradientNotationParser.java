@@ -0,0 +1,227 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 BlvckBytes
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.blvckbytes.animateditemplayground;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Single-pass parser for the gradient notation {@code <#RRGGBB:offset #RRGGBB:offset ...>}
+ * which operates on a range of any char sequence and writes the stops straight into a
+ * {@link CompiledGradient}, without creating intermediate strings or boxed numbers.
+ * <p>
+ * Offsets are plain decimals, like {@code 0}, {@code .5} or {@code 0.25}, between 0 and 1.
+ * If parsing fails, the absolute index of the offending character as well as a short
+ * description is kept until the next invocation. Instances are not thread-safe.
+ */
+public class GradientNotationParser {
+
+  // Powers of ten which are exactly representable as doubles
+  private static final double[] POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+    1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18
+  };
+
+  // Digits beyond this count are below the precision of the mantissa and thereby ignored
+  private static final int MAX_SIGNIFICANT_DIGITS = POWERS_OF_TEN.length - 1;
+
+  private int errorIndex;
+  private @Nullable String errorMessage;
+
+  public GradientNotationParser() {
+    this.errorIndex = -1;
+  }
+
+  /**
+   * Parse a gradient notation into a newly created gradient
+   * @param input Input to read from
+   * @param begin Index of the opening angle bracket
+   * @param end Index after the closing angle bracket
+   * @return Compiled gradient on success, null if the notation was malformed
+   */
+  public @Nullable CompiledGradient parse(CharSequence input, int begin, int end) {
+    CompiledGradient result = new CompiledGradient();
+    return parseInto(input, begin, end, result) ? result : null;
+  }
+
+  /**
+   * Parse a gradient notation into an existing gradient, which is cleared beforehand
+   * @param input Input to read from
+   * @param begin Index of the opening angle bracket
+   * @param end Index after the closing angle bracket
+   * @param target Gradient to write the stops into
+   * @return True on success, false if the notation was malformed
+   */
+  public boolean parseInto(CharSequence input, int begin, int end, CompiledGradient target) {
+    errorIndex = -1;
+    errorMessage = null;
+    target.clear();
+
+    if (end - begin < 2 || input.charAt(begin) != '<')
+      return fail(begin, "Expected an opening angle bracket");
+
+    int close = end - 1;
+    if (input.charAt(close) != '>')
+      return fail(close, "Expected a closing angle bracket");
+
+    int index = begin + 1;
+
+    while (true) {
+      // Parse the stop's color
+      if (index >= close || input.charAt(index) != '#')
+        return fail(index, "Expected a hex color starting with #");
+
+      index++;
+
+      if (close - index < 6)
+        return fail(index, "Expected six hex digits");
+
+      int color = 0;
+      for (int i = 0; i < 6; i++, index++) {
+        int digit = hexDigit(input.charAt(index));
+
+        if (digit < 0)
+          return fail(index, "Expected a hex digit");
+
+        color = (color << 4) | digit;
+      }
+
+      if (index >= close || input.charAt(index) != ':')
+        return fail(index, "Expected a colon after the color");
+
+      index++;
+
+      // Parse the stop's offset
+      long mantissa = 0;
+      int digits = 0, fractionDigits = 0;
+      boolean hadDot = false;
+      int offsetBegin = index;
+
+      for (; index < close; index++) {
+        char c = input.charAt(index);
+
+        if (c == '.') {
+          if (hadDot)
+            return fail(index, "Unexpected second decimal point");
+
+          hadDot = true;
+          continue;
+        }
+
+        if (c < '0' || c > '9')
+          break;
+
+        // Leading zeros don't count towards the significant digits
+        if (digits == 0 && c == '0') {
+          if (hadDot)
+            fractionDigits++;
+          continue;
+        }
+
+        if (digits == MAX_SIGNIFICANT_DIGITS) {
+          // Integer digits still scale the value, fraction digits are just dropped
+          if (!hadDot)
+            return fail(index, "Offset out of range");
+          continue;
+        }
+
+        mantissa = mantissa * 10 + (c - '0');
+        digits++;
+
+        if (hadDot)
+          fractionDigits++;
+      }
+
+      // Either nothing or only a decimal point
+      if (index - offsetBegin == (hadDot ? 1 : 0))
+        return fail(offsetBegin, "Expected a decimal offset");
+
+      double offset;
+
+      if (fractionDigits < POWERS_OF_TEN.length)
+        offset = mantissa / POWERS_OF_TEN[fractionDigits];
+
+      // Lots of leading fractional zeros, which is an edge-case not worth a table
+      else
+        offset = mantissa / Math.pow(10, fractionDigits);
+
+      if (offset > 1)
+        return fail(offsetBegin, "Offset out of range, has to be between 0 and 1");
+
+      target.addStop(color, offset);
+
+      // Reached the closing bracket
+      if (index == close)
+        return true;
+
+      if (input.charAt(index) != ' ')
+        return fail(index, "Expected a space between colors");
+
+      index++;
+
+      // Trailing spaces before the closing bracket are tolerated
+      int next = index;
+      while (next < close && input.charAt(next) == ' ')
+        next++;
+
+      if (next == close)
+        return true;
+    }
+  }
+
+  /**
+   * Get the absolute index of the character the last parse failed on
+   * @return Index, -1 if the last parse succeeded
+   */
+  public int getErrorIndex() {
+    return errorIndex;
+  }
+
+  /**
+   * Get a short description of why the last parse failed
+   * @return Description, null if the last parse succeeded
+   */
+  public @Nullable String getErrorMessage() {
+    return errorMessage;
+  }
+
+  private boolean fail(int index, String message) {
+    this.errorIndex = index;
+    this.errorMessage = message;
+    return false;
+  }
+
+  private static int hexDigit(char c) {
+    if (c >= '0' && c <= '9')
+      return c - '0';
+
+    if (c >= 'a' && c <= 'f')
+      return c - 'a' + 10;
+
+    if (c >= 'A' && c <= 'F')
+      return c - 'A' + 10;
+
+    return -1;
+  }
+}
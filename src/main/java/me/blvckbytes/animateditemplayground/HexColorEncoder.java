@@ -0,0 +1,91 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 BlvckBytes
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.blvckbytes.animateditemplayground;
+
+/**
+ * Encodes packed colors as lowercase hex strings of format {@code #rrggbb} through
+ * a lookup table of all byte values, instead of formatting every channel.
+ */
+public class HexColorEncoder {
+
+  // Both hex digits of every byte value, the high digit first
+  private static final char[] BYTE_DIGITS = new char[256 * 2];
+
+  static {
+    char[] digits = "0123456789abcdef".toCharArray();
+
+    for (int i = 0; i < 256; i++) {
+      BYTE_DIGITS[i * 2] = digits[i >> 4];
+      BYTE_DIGITS[i * 2 + 1] = digits[i & 0xF];
+    }
+  }
+
+  // Length of #rrggbb
+  public static final int ENCODED_LENGTH = 7;
+
+  private HexColorEncoder() {}
+
+  /**
+   * Encode a packed color into a char array
+   * @param color Color, packed as 0xRRGGBB
+   * @param target Array to write into
+   * @param offset Index within the target to write the leading # at
+   */
+  public static void encode(int color, char[] target, int offset) {
+    target[offset] = '#';
+    writeByte((color >> 16) & 0xFF, target, offset + 1);
+    writeByte((color >> 8) & 0xFF, target, offset + 3);
+    writeByte(color & 0xFF, target, offset + 5);
+  }
+
+  /**
+   * Encode a whole array of packed colors into consecutive runs of {@link #ENCODED_LENGTH} chars
+   * @param colors Colors, packed as 0xRRGGBB
+   * @param colorsOffset Index of the first color
+   * @param count Number of colors to encode
+   * @param target Array to write into
+   * @param targetOffset Index within the target to write the first leading # at
+   */
+  public static void encodeAll(int[] colors, int colorsOffset, int count, char[] target, int targetOffset) {
+    for (int i = 0; i < count; i++)
+      encode(colors[colorsOffset + i], target, targetOffset + i * ENCODED_LENGTH);
+  }
+
+  /**
+   * Encode a packed color as a string
+   * @param color Color, packed as 0xRRGGBB
+   * @return Encoded color of format #rrggbb
+   */
+  public static String toString(int color) {
+    char[] result = new char[ENCODED_LENGTH];
+    encode(color, result, 0);
+    return new String(result);
+  }
+
+  private static void writeByte(int value, char[] target, int offset) {
+    target[offset] = BYTE_DIGITS[value * 2];
+    target[offset + 1] = BYTE_DIGITS[value * 2 + 1];
+  }
+}
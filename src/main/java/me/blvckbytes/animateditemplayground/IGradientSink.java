@@ -0,0 +1,54 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 BlvckBytes
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package me.blvckbytes.animateditemplayground;
+
+import java.io.IOException;
+
+/**
+ * Receives the uniformly colored segments of a gradient one after the other, as they are
+ * produced by {@link GradientGenerator#gradientizeTo(java.io.Reader, int, CompiledGradient, IGradientSink)}
+ */
+public interface IGradientSink {
+
+  /**
+   * Called once before the first segment
+   * @param totalLength Total number of characters which are about to be colored
+   */
+  default void begin(int totalLength) throws IOException {}
+
+  /**
+   * Called for every segment, in order
+   * @param text Text of the segment, which is reused afterwards and thus only valid during this call
+   * @param color Color of all characters within the segment, packed as 0xRRGGBB
+   */
+  void segment(CharSequence text, int color) throws IOException;
+
+  /**
+   * Called once after the last segment
+   */
+  default void end() throws IOException {}
+
+}
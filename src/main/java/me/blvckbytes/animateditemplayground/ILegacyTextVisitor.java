@@ -0,0 +1,78 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 BlvckBytes
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.blvckbytes.animateditemplayground;
+
+/**
+ * Receives the tokens of legacy formatted text, as emitted by the {@link LegacyTextTokenizer}.
+ * All tokens reference the range of the input they've been read from, so that visitors
+ * can copy raw input over without having to create intermediate strings.
+ */
+public interface ILegacyTextVisitor {
+
+  /**
+   * Called for a run of literal text
+   * @param input Input which is being tokenized
+   * @param begin Index of the first character of the run
+   * @param end Index after the last character of the run
+   */
+  void onText(CharSequence input, int begin, int end);
+
+  /**
+   * Called for a hex color notation of format §#RRGGBB
+   * @param color Parsed color in the format 0xRRGGBB
+   * @param input Input which is being tokenized
+   * @param begin Index of the section sign
+   * @param end Index after the last hex digit
+   */
+  void onHexColor(int color, CharSequence input, int begin, int end);
+
+  /**
+   * Called for a gradient notation of format §&lt;#RRGGBB:offset ...&gt;
+   * @param gradient Parsed gradient, owned by the visitor from now on
+   * @param input Input which is being tokenized
+   * @param begin Index of the section sign
+   * @param end Index after the closing angle bracket
+   */
+  void onGradient(CompiledGradient gradient, CharSequence input, int begin, int end);
+
+  /**
+   * Called for a text formatting sequence, like §l
+   * @param formatting Formatting the sequence represents
+   * @param input Input which is being tokenized
+   * @param begin Index of the section sign
+   * @param end Index after the marker
+   */
+  void onFormatting(TextFormatting formatting, CharSequence input, int begin, int end);
+
+  /**
+   * Called for a vanilla color sequence (§0-§9, §a-§f) or a reset (§r)
+   * @param code Character following the section sign
+   * @param input Input which is being tokenized
+   * @param begin Index of the section sign
+   * @param end Index after the code
+   */
+  void onLegacyColor(char code, CharSequence input, int begin, int end);
+
+}
@@ -0,0 +1,53 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 BlvckBytes
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package me.blvckbytes.animateditemplayground;
+
+import org.bukkit.entity.Player;
+
+/**
+ * A place where animated text is shown to a player, like an item's name or the action bar.
+ * Targets don't render on their own, but show frames which have been rendered once and are
+ * shared by all targets and players, so that a frame is only ever computed and serialized
+ * once per client capability, no matter how many targets and viewers display it.
+ */
+public interface IRenderTarget {
+
+  /**
+   * Show a frame to a player, called on the animation's render thread
+   * @param player Player to show the frame to
+   * @param frame Frame to show, shared with all other targets and viewers
+   * @param capability Capability of the player's client
+   */
+  void show(Player player, RenderedFrame frame, ClientCapability capability);
+
+  /**
+   * Remove everything this target has shown to a player and drop all state kept for
+   * them, called on the main thread once the player quits or the animation is shut down
+   * @param player Player to clear
+   */
+  void clear(Player player);
+
+}
@@ -0,0 +1,110 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 BlvckBytes
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package me.blvckbytes.animateditemplayground;
+
+import me.blvckbytes.animateditemplayground.AccessorFactory.IFieldSetter;
+import me.blvckbytes.animateditemplayground.AccessorFactory.IStaticFunction;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Shows frames as the name of the item in a player's main hand, which is written into the
+ * item's tag directly whenever possible, and set on the item's meta otherwise, as the API
+ * only accepts names as legacy text
+ */
+public class ItemNameRenderTarget implements IRenderTarget {
+
+  private final @Nullable IFieldSetter F_CRAFT_META_ITEM__NAME_BASE_COMPONENT, F_CRAFT_META_ITEM__NAME_STRING;
+  private final IStaticFunction M_CHAT_SERIALIZER__FROM_JSON;
+  private final @Nullable DirectItemNameWriter directWriter;
+
+  /**
+   * Create a new item name target
+   * @param nameBaseComponent Setter of the meta's name as a component, null if it's stored as a string
+   * @param nameString Setter of the meta's name as a JSON string, null if it's stored as a component
+   * @param fromJson Function converting JSON into the server's internal component
+   * @param directWriter Writer of names into the item's tag, null if it's not available on this version
+   */
+  public ItemNameRenderTarget(
+    @Nullable IFieldSetter nameBaseComponent,
+    @Nullable IFieldSetter nameString,
+    IStaticFunction fromJson,
+    @Nullable DirectItemNameWriter directWriter
+  ) {
+    this.F_CRAFT_META_ITEM__NAME_BASE_COMPONENT = nameBaseComponent;
+    this.F_CRAFT_META_ITEM__NAME_STRING = nameString;
+    this.M_CHAT_SERIALIZER__FROM_JSON = fromJson;
+    this.directWriter = directWriter;
+  }
+
+  @Override
+  public void show(Player player, RenderedFrame frame, ClientCapability capability) {
+    ItemStack itemInHand = player.getInventory().getItemInMainHand();
+
+    if (itemInHand.getType().isAir()) {
+      itemInHand = new ItemStack(Material.DIAMOND_SWORD);
+      player.getInventory().setItemInMainHand(itemInHand);
+    }
+
+    String colorJsonString = frame.getJsonString(capability);
+
+    // Leaves all other data of the item untouched, instead of copying it into a meta and back
+    if (directWriter != null && directWriter.tryWrite(itemInHand, colorJsonString))
+      return;
+
+    ItemMeta meta = itemInHand.getItemMeta();
+
+    if (meta == null)
+      throw new IllegalStateException("Could not get the item's meta");
+
+    if (F_CRAFT_META_ITEM__NAME_STRING != null)
+      F_CRAFT_META_ITEM__NAME_STRING.set(meta, colorJsonString);
+
+    if (F_CRAFT_META_ITEM__NAME_BASE_COMPONENT != null) {
+      PipelineEvents.NmsConversion conversion = new PipelineEvents.NmsConversion();
+      conversion.begin();
+
+      Object component = M_CHAT_SERIALIZER__FROM_JSON.apply(frame.getJson(capability));
+
+      if (conversion.shouldCommit()) {
+        conversion.jsonLength = colorJsonString.length();
+        conversion.commit();
+      }
+
+      F_CRAFT_META_ITEM__NAME_BASE_COMPONENT.set(meta, component);
+    }
+
+    itemInHand.setItemMeta(meta);
+  }
+
+  @Override
+  public void clear(Player player) {
+    // The item keeps it's last name, just like it did before
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 BlvckBytes
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package me.blvckbytes.animateditemplayground;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes the segments of a gradient straight into a JSON text component, without ever
+ * building the component tree. The result renders exactly like the component of
+ * {@link GradientGenerator#gradientize(String, CompiledGradient)}, with neighbouring
+ * characters of equal color sharing a segment.
+ */
+public class JsonGradientSink implements IGradientSink {
+
+  // JSON keys of all formatting flags, indexed by their ordinal
+  private static final String[] FORMATTING_KEYS = new String[TextFormatting.values.length];
+
+  static {
+    for (TextFormatting fmt : TextFormatting.values)
+      FORMATTING_KEYS[fmt.ordinal()] = fmt.name().toLowerCase();
+  }
+
+  private final JsonWriter writer;
+  private final boolean approximateColors;
+  private final int formatting;
+
+  // The extra array may not be empty, so it's only opened once the first segment arrives
+  private boolean hasSegments;
+
+  /**
+   * Create a new sink
+   * @param out Writer to write the JSON into, which is flushed but not closed at the end
+   * @param approximateColors Whether to approximate colors for clients without hex color support
+   * @param formatting Formatting bitmask of the whole text, see {@link TextSpan#formattingMask(boolean[])}
+   */
+  public JsonGradientSink(Writer out, boolean approximateColors, int formatting) {
+    this.writer = new JsonWriter(out);
+    this.approximateColors = approximateColors;
+    this.formatting = formatting;
+  }
+
+  @Override
+  public void begin(int totalLength) throws IOException {
+    hasSegments = false;
+
+    writer.beginObject();
+    writer.name("text").value("");
+
+    // Formatting is set once on the head, as all segments inherit it
+    for (int i = 0; i < FORMATTING_KEYS.length; i++) {
+      if ((formatting & (1 << i)) != 0)
+        writer.name(FORMATTING_KEYS[i]).value(true);
+    }
+  }
+
+  @Override
+  public void segment(CharSequence text, int color) throws IOException {
+    if (!hasSegments) {
+      writer.name("extra").beginArray();
+      hasSegments = true;
+    }
+
+    writer.beginObject();
+    writer.name("text").value(text.toString());
+    writer.name("color").value(approximateColors ? TextComponent.approximateColor(color) : HexColorEncoder.toString(color));
+    writer.endObject();
+  }
+
+  @Override
+  public void end() throws IOException {
+    if (hasSegments)
+      writer.endArray();
+
+    writer.endObject();
+    writer.flush();
+  }
+}
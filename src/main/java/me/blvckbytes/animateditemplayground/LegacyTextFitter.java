@@ -0,0 +1,215 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 BlvckBytes
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package me.blvckbytes.animateditemplayground;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import net.md_5.bungee.api.chat.BaseComponent;
+import net.md_5.bungee.chat.ComponentSerializer;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Fits the legacy text of frames into a maximum length, as imposed by API methods which only
+ * take limited strings. Legacy text spends 14 characters on every hex color, plus two per
+ * formatting, so a gradient which colors each character on it's own is about 16 times as long
+ * as it's text. Frames which don't fit are quantized into as many uniformly colored segments
+ * as the length allows, see {@link ColorQuantizer}, at the cost of a coarser gradient.
+ * <p>
+ * Only frames whose characters all carry a hex color and share the same formatting can be
+ * quantized. The result of the last frame is kept, as a frame is mostly shown to multiple
+ * players in a row. Instances are meant to be used by a single render thread.
+ */
+public class LegacyTextFitter {
+
+  // §x followed by six §-prefixed hex digits, as well as a single §-prefixed code
+  private static final int HEX_COLOR_LENGTH = 14, LEGACY_CODE_LENGTH = 2;
+
+  private final ColorQuantizer quantizer;
+  private final StringBuilder text;
+  private int[] colors, segmentEnds, segmentColors;
+
+  // Formatting of all characters collected so far
+  private int sharedFormatting;
+
+  private @Nullable RenderedFrame lastFrame;
+  private @Nullable ClientCapability lastCapability;
+  private int lastMaxLength;
+  private @Nullable String lastResult;
+
+  public LegacyTextFitter() {
+    this.quantizer = new ColorQuantizer();
+    this.text = new StringBuilder();
+    this.colors = new int[0];
+    this.segmentEnds = new int[0];
+    this.segmentColors = new int[0];
+  }
+
+  /**
+   * Get a frame's legacy text within a maximum length
+   * @param frame Frame to get the legacy text of
+   * @param capability Capability of the viewing client
+   * @param maxLength Maximum number of characters
+   * @return Legacy text, null if it can't be fitted into the maximum length
+   */
+  public @Nullable String fit(RenderedFrame frame, ClientCapability capability, int maxLength) {
+    if (frame == lastFrame && capability == lastCapability && maxLength == lastMaxLength)
+      return lastResult;
+
+    String result = frame.getLegacyText(capability);
+
+    if (result.length() > maxLength)
+      result = quantize(frame, capability, maxLength);
+
+    lastFrame = frame;
+    lastCapability = capability;
+    lastMaxLength = maxLength;
+    lastResult = result;
+    return result;
+  }
+
+  private @Nullable String quantize(RenderedFrame frame, ClientCapability capability, int maxLength) {
+    text.setLength(0);
+
+    // Colors are always taken from the hex representation, approximation happens at the end
+    if (!collect(frame.getJson(ClientCapability.HEX_COLORS), TextSpan.NO_COLOR, 0) || text.length() == 0)
+      return null;
+
+    int formatting = sharedFormatting;
+
+    int length = text.length();
+    int codesLength = LEGACY_CODE_LENGTH * Integer.bitCount(formatting);
+    int colorLength = capability.isApproximatingColors() ? LEGACY_CODE_LENGTH : HEX_COLOR_LENGTH;
+
+    // The head is emitted with a color of it's own as well, even though it has no text
+    int fixedLength = length + LEGACY_CODE_LENGTH + codesLength;
+
+    if (segmentEnds.length < length) {
+      segmentEnds = new int[length];
+      segmentColors = new int[length];
+    }
+
+    // Retry with fewer segments if the estimate fell short, like for merged neighbours
+    for (int maxSegments = (maxLength - fixedLength) / (colorLength + codesLength); maxSegments >= 1; maxSegments--) {
+      int segments = quantizer.quantize(colors, length, maxSegments, segmentEnds, segmentColors);
+
+      TextComponent head = new TextComponent("");
+
+      for (TextFormatting fmt : TextFormatting.values) {
+        if ((formatting & (1 << fmt.ordinal())) != 0)
+          head.toggleFormatting(fmt, true);
+      }
+
+      for (int i = 0, begin = 0; i < segments; i++) {
+        head.addSibling(new TextSpan(text.substring(begin, segmentEnds[i]), segmentColors[i]));
+        begin = segmentEnds[i];
+      }
+
+      String json = head.toJson(capability.isApproximatingColors()).toString();
+      String result = BaseComponent.toLegacyText(ComponentSerializer.parse(json));
+
+      if (result.length() <= maxLength)
+        return result;
+    }
+
+    return null;
+  }
+
+  /**
+   * Collect the text and the color of each character of a component's JSON, with inherited styles
+   * @return False if a character has no hex color or if the formatting differs between characters
+   */
+  private boolean collect(JsonObject component, int parentColor, int parentFormatting) {
+    int color = parentColor;
+    JsonElement colorValue = component.get("color");
+
+    if (colorValue != null) {
+      color = parseHexColor(colorValue.getAsString());
+
+      if (color == TextSpan.NO_COLOR)
+        return false;
+    }
+
+    int formatting = parentFormatting;
+
+    for (TextFormatting fmt : TextFormatting.values) {
+      JsonElement value = component.get(fmt.name().toLowerCase());
+
+      if (value == null)
+        continue;
+
+      if (value.getAsBoolean())
+        formatting |= 1 << fmt.ordinal();
+      else
+        formatting &= ~(1 << fmt.ordinal());
+    }
+
+    JsonElement textValue = component.get("text");
+    String value = textValue == null ? "" : textValue.getAsString();
+
+    if (!value.isEmpty()) {
+      if (color == TextSpan.NO_COLOR || (text.length() > 0 && formatting != sharedFormatting))
+        return false;
+
+      sharedFormatting = formatting;
+
+      int length = text.length() + value.length();
+      if (colors.length < length)
+        colors = Arrays.copyOf(colors, Math.max(length, colors.length * 2));
+
+      Arrays.fill(colors, text.length(), length, color);
+      text.append(value);
+    }
+
+    JsonElement extra = component.get("extra");
+
+    if (extra instanceof JsonArray) {
+      for (JsonElement sibling : (JsonArray) extra) {
+        if (!(sibling instanceof JsonObject) || !collect((JsonObject) sibling, color, formatting))
+          return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Parse a color of the exact notation #rrggbb, as emitted by {@link HexColorEncoder}
+   * @return Packed color, TextSpan.NO_COLOR if the notation differs
+   */
+  private static int parseHexColor(String color) {
+    if (color.length() != HexColorEncoder.ENCODED_LENGTH || color.charAt(0) != '#')
+      return TextSpan.NO_COLOR;
+
+    try {
+      return Integer.parseInt(color.substring(1), 16);
+    } catch (NumberFormatException e) {
+      return TextSpan.NO_COLOR;
+    }
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 BlvckBytes
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.blvckbytes.animateditemplayground;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Walks legacy formatted text exactly once and emits it's tokens to a visitor. Special
+ * sequences which turn out to be malformed are reported as literal text, with the only
+ * exception of a §# which isn't followed by six hex digits, where the section sign is dropped.
+ * Instances may be reused, but are not thread-safe.
+ */
+public class LegacyTextTokenizer {
+
+  private final @Nullable GradientNotationParser notationParser;
+
+  /**
+   * Create a new tokenizer
+   * @param parseGradients Whether to recognize gradient notations, which are literal text otherwise
+   */
+  public LegacyTextTokenizer(boolean parseGradients) {
+    this.notationParser = parseGradients ? new GradientNotationParser() : null;
+  }
+
+  /**
+   * Tokenize a whole input
+   * @param input Input to tokenize
+   * @param visitor Visitor to emit tokens to
+   */
+  public void tokenize(CharSequence input, ILegacyTextVisitor visitor) {
+    tokenize(input, 0, input.length(), visitor);
+  }
+
+  /**
+   * Tokenize a range of an input
+   * @param input Input to tokenize
+   * @param begin Index of the first character to tokenize
+   * @param end Index after the last character to tokenize
+   * @param visitor Visitor to emit tokens to
+   */
+  public void tokenize(CharSequence input, int begin, int end, ILegacyTextVisitor visitor) {
+    // Start of the literal text run which has not yet been emitted
+    int runBegin = begin;
+
+    for (int i = begin; i < end; i++) {
+      // Not a special notation (or the last char), keep on collecting
+      if (input.charAt(i) != '§' || i == end - 1)
+        continue;
+
+      char n = input.charAt(i + 1);
+
+      // HEX color notation, supporting only #RRGGBB
+      if (n == '#' && end - i >= 2 + 6) {
+        int color = parseHexColor(input, i + 2);
+
+        emitText(input, runBegin, i, visitor);
+
+        // Not a valid hex-color, drop the § and continue with the # as literal text
+        if (color < 0) {
+          runBegin = i + 1;
+          continue;
+        }
+
+        visitor.onHexColor(color, input, i, i + 8);
+
+        // Skip §#RRGGBB
+        i += 7;
+        runBegin = i + 1;
+        continue;
+      }
+
+      // Could be a gradient notation
+      if (n == '<' && notationParser != null) {
+        int closeInd = indexOf(input, '>', i + 1, end);
+
+        if (closeInd > 0) {
+          CompiledGradient gradient = notationParser.parse(input, i + 1, closeInd + 1);
+
+          // Was a gradient notation, emit and jump ahead
+          if (gradient != null) {
+            emitText(input, runBegin, i, visitor);
+            visitor.onGradient(gradient, input, i, closeInd + 1);
+            i = closeInd;
+            runBegin = i + 1;
+            continue;
+          }
+        }
+      }
+
+      TextFormatting fmt = TextFormatting.getByChar(n);
+
+      if (fmt != null) {
+        emitText(input, runBegin, i, visitor);
+        visitor.onFormatting(fmt, input, i, i + 2);
+        i++;
+        runBegin = i + 1;
+        continue;
+      }
+
+      if ((n >= '0' && n <= '9') || (n >= 'a' && n <= 'f') || n == 'r') {
+        emitText(input, runBegin, i, visitor);
+        visitor.onLegacyColor(n, input, i, i + 2);
+        i++;
+        runBegin = i + 1;
+      }
+
+      // Any other sequence is kept as literal text, while the following
+      // character is still looked at, as it may start a sequence itself
+    }
+
+    emitText(input, runBegin, end, visitor);
+  }
+
+  private static void emitText(CharSequence input, int begin, int end, ILegacyTextVisitor visitor) {
+    if (end > begin)
+      visitor.onText(input, begin, end);
+  }
+
+  /**
+   * Parse six hex digits into a packed color
+   * @return Color in the format 0xRRGGBB, -1 if any of the digits were invalid
+   */
+  private static int parseHexColor(CharSequence input, int begin) {
+    int color = 0;
+
+    for (int i = begin; i < begin + 6; i++) {
+      char c = input.charAt(i);
+      int digit;
+
+      if (c >= '0' && c <= '9')
+        digit = c - '0';
+      else if (c >= 'a' && c <= 'f')
+        digit = c - 'a' + 10;
+      else if (c >= 'A' && c <= 'F')
+        digit = c - 'A' + 10;
+      else
+        return -1;
+
+      color = (color << 4) | digit;
+    }
+
+    return color;
+  }
+
+  private static int indexOf(CharSequence input, char c, int begin, int end) {
+    for (int i = begin; i < end; i++) {
+      if (input.charAt(i) == c)
+        return i;
+    }
+    return -1;
+  }
+}
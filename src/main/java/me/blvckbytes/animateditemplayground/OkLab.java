@@ -0,0 +1,110 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 BlvckBytes
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.blvckbytes.animateditemplayground;
+
+/**
+ * Conversions between packed sRGB colors and the OKLab color space, as specified on
+ * <a href="https://bottosson.github.io/posts/oklab/">bottosson.github.io</a>. The sRGB
+ * transfer functions are served from lookup tables, so that converting back from OKLab
+ * only costs two matrix multiplications and three cubes.
+ */
+public class OkLab {
+
+  // Resolution of the linear to sRGB table, which keeps the error below one channel step
+  private static final int LINEAR_STEPS = 16384;
+
+  private static final double[] SRGB_TO_LINEAR;
+  private static final byte[] LINEAR_TO_SRGB;
+
+  static {
+    SRGB_TO_LINEAR = new double[256];
+    for (int i = 0; i < SRGB_TO_LINEAR.length; i++) {
+      double c = i / 255.0;
+      SRGB_TO_LINEAR[i] = c <= 0.04045 ? c / 12.92 : Math.pow((c + 0.055) / 1.055, 2.4);
+    }
+
+    LINEAR_TO_SRGB = new byte[LINEAR_STEPS + 1];
+    for (int i = 0; i < LINEAR_TO_SRGB.length; i++) {
+      double c = (double) i / LINEAR_STEPS;
+      double srgb = c <= 0.0031308 ? c * 12.92 : 1.055 * Math.pow(c, 1 / 2.4) - 0.055;
+      LINEAR_TO_SRGB[i] = (byte) Math.round(srgb * 255);
+    }
+  }
+
+  private OkLab() {}
+
+  /**
+   * Convert a packed sRGB color into OKLab
+   * @param color Color in the format 0xRRGGBB
+   * @param result Array to write L, a and b into
+   * @param offset Index to start writing at
+   */
+  public static void fromRgb(int color, double[] result, int offset) {
+    double r = SRGB_TO_LINEAR[(color >> 16) & 0xFF];
+    double g = SRGB_TO_LINEAR[(color >> 8) & 0xFF];
+    double b = SRGB_TO_LINEAR[color & 0xFF];
+
+    double l = Math.cbrt(0.4122214708 * r + 0.5363325363 * g + 0.0514459929 * b);
+    double m = Math.cbrt(0.2119034982 * r + 0.6806995451 * g + 0.1073969566 * b);
+    double s = Math.cbrt(0.0883024619 * r + 0.2817188376 * g + 0.6299787005 * b);
+
+    result[offset] = 0.2104542553 * l + 0.7936177850 * m - 0.0040720468 * s;
+    result[offset + 1] = 1.9779984951 * l - 2.4285922050 * m + 0.4505937099 * s;
+    result[offset + 2] = 0.0259040371 * l + 0.7827717662 * m - 0.8086757660 * s;
+  }
+
+  /**
+   * Convert an OKLab color into a packed sRGB color, clamping out-of-gamut channels
+   * @param lightness L component
+   * @param a a component
+   * @param b b component
+   * @return Color in the format 0xRRGGBB
+   */
+  public static int toRgb(double lightness, double a, double b) {
+    double l = lightness + 0.3963377774 * a + 0.2158037573 * b;
+    double m = lightness - 0.1055613458 * a - 0.0638541728 * b;
+    double s = lightness - 0.0894841775 * a - 1.2914855480 * b;
+
+    l = l * l * l;
+    m = m * m * m;
+    s = s * s * s;
+
+    int red   = linearToSrgb( 4.0767416621 * l - 3.3077115913 * m + 0.2309699292 * s);
+    int green = linearToSrgb(-1.2684380046 * l + 2.6097574011 * m - 0.3413193965 * s);
+    int blue  = linearToSrgb(-0.0041960863 * l - 0.7034186147 * m + 1.7076147010 * s);
+
+    return (red << 16) | (green << 8) | blue;
+  }
+
+  private static int linearToSrgb(double value) {
+    if (value <= 0)
+      return 0;
+
+    if (value >= 1)
+      return 255;
+
+    return LINEAR_TO_SRGB[(int) (value * LINEAR_STEPS + .5)] & 0xFF;
+  }
+}
@@ -0,0 +1,180 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 BlvckBytes
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.blvckbytes.animateditemplayground;
+
+import jdk.jfr.*;
+
+/**
+ * Flight Recorder events for every stage of the animation pipeline, so that the cost of
+ * animations can be lined up with GC pauses and tick spikes within a recording.
+ * <p>
+ * Events are used as {@code begin()}, work, then {@code commit()}, with their fields
+ * only being computed if {@code shouldCommit()} holds. When recording is off, the JIT
+ * eliminates the event instances entirely, leaving close to no overhead.
+ */
+public class PipelineEvents {
+
+  private static final String CATEGORY = "AnimatedItemPlayground";
+
+  private PipelineEvents() {}
+
+  @Name("animateditemplayground.AnimationTick")
+  @Label("Animation Tick")
+  @Description("A whole run of the animation task across all online players")
+  @Category({ CATEGORY, "Animation" })
+  @StackTrace(false)
+  public static class AnimationTick extends Event {
+
+    @Label("Player Count")
+    int playerCount;
+
+    @Label("Frame Cache Hits")
+    int cacheHits;
+
+    @Label("Frame Cache Misses")
+    int cacheMisses;
+
+  }
+
+  @Name("animateditemplayground.UpdateAnimation")
+  @Label("Update Animation")
+  @Description("Rendering, delivering and advancing the animation of a single player")
+  @Category({ CATEGORY, "Animation" })
+  @StackTrace(false)
+  public static class UpdateAnimation extends Event {
+
+    @Label("Text Length")
+    int textLength;
+
+    @Label("Stop Count")
+    int stopCount;
+
+    @Label("Frame Cache Hit")
+    boolean cacheHit;
+
+  }
+
+  @Name("animateditemplayground.Gradientize")
+  @Label("Gradientize")
+  @Description("Applying a gradient to a text")
+  @Category({ CATEGORY, "Rendering" })
+  @StackTrace(false)
+  public static class Gradientize extends Event {
+
+    @Label("Text Length")
+    int textLength;
+
+    @Label("Stop Count")
+    int stopCount;
+
+    @Label("Segment Count")
+    int segmentCount;
+
+  }
+
+  @Name("animateditemplayground.ToJson")
+  @Label("Component To JSON")
+  @Description("Transforming a whole component tree into it's JSON representation")
+  @Category({ CATEGORY, "Rendering" })
+  @StackTrace(false)
+  public static class ToJson extends Event {
+
+    @Label("Sibling Count")
+    int siblingCount;
+
+    @Label("Approximate Colors")
+    boolean approximateColors;
+
+  }
+
+  @Name("animateditemplayground.ParseFromText")
+  @Label("Parse From Text")
+  @Description("Parsing legacy formatted text into a component tree")
+  @Category({ CATEGORY, "Rendering" })
+  @StackTrace(false)
+  public static class ParseFromText extends Event {
+
+    @Label("Text Length")
+    int textLength;
+
+    @Label("Parse Gradients")
+    boolean parseGradients;
+
+    @Label("Quick Exit")
+    @Description("The text had no hex colors or gradients and has been taken as is")
+    boolean quickExit;
+
+  }
+
+  @Name("animateditemplayground.NmsConversion")
+  @Label("NMS Conversion")
+  @Description("Converting a frame's JSON into the server's internal component")
+  @Category({ CATEGORY, "Delivery" })
+  @StackTrace(false)
+  public static class NmsConversion extends Event {
+
+    @Label("JSON Length")
+    int jsonLength;
+
+  }
+
+  @Name("animateditemplayground.Delivery")
+  @Label("Delivery")
+  @Description("Showing a frame on all render targets of a player")
+  @Category({ CATEGORY, "Delivery" })
+  @StackTrace(false)
+  public static class Delivery extends Event {
+
+    @Label("Player")
+    @Description("UUID of the player the frame has been delivered to")
+    String player;
+
+    @Label("JSON Length")
+    int jsonLength;
+
+    @Label("Wire Length")
+    @Description("Bytes charged against the player's animation bandwidth, zero if skipped")
+    @DataAmount
+    int wireLength;
+
+    @Label("Sent Bytes")
+    @Description("Animation bytes sent to the player since they've been first animated")
+    @DataAmount
+    long sentBytes;
+
+    @Label("Dropped Frames")
+    @Description("Frames dropped for the player since they've been first animated")
+    int droppedFrames;
+
+    @Label("Skipped")
+    @Description("The player already saw this exact frame")
+    boolean skipped;
+
+    @Label("Dropped")
+    @Description("The player's connection lagged behind or it's animation bandwidth was used up")
+    boolean dropped;
+
+  }
+}
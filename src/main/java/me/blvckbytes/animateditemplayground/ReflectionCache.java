@@ -0,0 +1,273 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 BlvckBytes
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.blvckbytes.animateditemplayground;
+
+import me.blvckbytes.bukkitboilerplate.ELogLevel;
+import me.blvckbytes.bukkitboilerplate.ILogger;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.CodeSource;
+import java.util.Properties;
+
+/**
+ * Persists the results of member scans (which field or method matched a given
+ * predicate) to disk, so that later starts can look members up by their exact
+ * name instead of scanning all declared members of a class again.
+ * <p>
+ * The file is keyed by the server version as well as by a fingerprint of the server's
+ * jar and this plugin's version, since both may change the outcome of a scan. A key
+ * mismatch discards all entries. As the cache is only an optimization, failing to persist
+ * it is logged and otherwise ignored.
+ */
+public class ReflectionCache {
+
+  private static final String KEY_PROPERTY = "@key";
+  private static final String ABSENT_VALUE = "-";
+
+  @FunctionalInterface
+  public interface IMemberResolver<T extends Member> {
+
+    /**
+     * Resolve the member by scanning, as the cache had no entry for it
+     * @return Resolved member, null if it's not present on this version
+     */
+    @Nullable T resolve() throws Exception;
+
+  }
+
+  private final File file;
+  private final String key;
+  private final ClassLoader classLoader;
+  private final Properties entries;
+  private final ILogger logger;
+
+  private boolean dirty;
+
+  /**
+   * Create a new cache backed by the given file
+   * @param file File to persist the entries in
+   * @param serverVersion Version identifier of the running server
+   * @param serverClass Any class loaded from the server's jar, used for fingerprinting and class lookups
+   * @param pluginVersion Version of this plugin, as member predicates may change between versions
+   * @param logger Logger to report failures to persist the cache to
+   */
+  public ReflectionCache(File file, String serverVersion, Class<?> serverClass, String pluginVersion, ILogger logger) {
+    this.file = file;
+    this.logger = logger;
+    this.classLoader = serverClass.getClassLoader();
+    this.key = serverVersion + "|" + fingerprintJar(serverClass) + "|" + pluginVersion;
+    this.entries = new Properties();
+    this.load();
+  }
+
+  /**
+   * Look up a field by it's cache id, or resolve it by the provided resolver on a miss
+   * @param id Unique identifier of this lookup
+   * @param resolver Resolver to invoke on a cache miss
+   * @return Resolved field, null if the field is absent
+   * @throws Exception Exception of the resolver, if it failed
+   */
+  public @Nullable Field field(String id, IMemberResolver<Field> resolver) throws Exception {
+    return lookup(id, Field.class, resolver);
+  }
+
+  /**
+   * Look up a method by it's cache id, or resolve it by the provided resolver on a miss
+   * @param id Unique identifier of this lookup
+   * @param resolver Resolver to invoke on a cache miss
+   * @return Resolved method, null if the method is absent
+   * @throws Exception Exception of the resolver, if it failed
+   */
+  public @Nullable Method method(String id, IMemberResolver<Method> resolver) throws Exception {
+    return lookup(id, Method.class, resolver);
+  }
+
+  /**
+   * Persist newly resolved entries, if any; failures are logged, as
+   * the members themselves have been resolved regardless
+   */
+  public void complete() {
+    if (!dirty)
+      return;
+
+    try {
+      save();
+    } catch (IOException e) {
+      logger.log(ELogLevel.WARNING, "Could not persist the reflection cache to " + file + ", members will be scanned for again on the next start");
+      logger.logError(e);
+    }
+  }
+
+  ////////////////////////////////// Lookups ///////////////////////////////////
+
+  private <T extends Member> @Nullable T lookup(String id, Class<T> type, IMemberResolver<T> resolver) throws Exception {
+    String value = entries.getProperty(id);
+
+    if (value != null) {
+      try {
+        // Has been absent on this version before, no need to scan again
+        if (value.equals(ABSENT_VALUE))
+          return null;
+
+        return type.cast(decodeMember(value));
+      }
+
+      // The entry went stale, fall back to resolving it again
+      catch (Exception ignored) {}
+    }
+
+    T member = resolver.resolve();
+    entries.setProperty(id, member == null ? ABSENT_VALUE : encodeMember(member));
+    dirty = true;
+    return member;
+  }
+
+  ///////////////////////////////// Encoding //////////////////////////////////
+
+  /**
+   * Encodes a member as {@code declaringClass#name} for fields and
+   * as {@code declaringClass#name(paramType,paramType)} for methods
+   */
+  private static String encodeMember(Member member) {
+    StringBuilder result = new StringBuilder(member.getDeclaringClass().getName())
+      .append('#').append(member.getName());
+
+    if (member instanceof Method) {
+      result.append('(');
+
+      Class<?>[] parameters = ((Method) member).getParameterTypes();
+      for (int i = 0; i < parameters.length; i++) {
+        if (i != 0)
+          result.append(',');
+        result.append(parameters[i].getName());
+      }
+
+      result.append(')');
+    }
+
+    return result.toString();
+  }
+
+  private Member decodeMember(String value) throws Exception {
+    int hashIndex = value.indexOf('#');
+    int parenIndex = value.indexOf('(', hashIndex);
+
+    Class<?> declaringClass = resolveClass(value.substring(0, hashIndex));
+
+    // Fields don't have a parameter list
+    if (parenIndex < 0) {
+      Field field = declaringClass.getDeclaredField(value.substring(hashIndex + 1));
+      field.setAccessible(true);
+      return field;
+    }
+
+    String parameterList = value.substring(parenIndex + 1, value.length() - 1);
+    String[] parameterNames = parameterList.isEmpty() ? new String[0] : parameterList.split(",");
+    Class<?>[] parameters = new Class[parameterNames.length];
+
+    for (int i = 0; i < parameterNames.length; i++)
+      parameters[i] = resolveClass(parameterNames[i]);
+
+    Method method = declaringClass.getDeclaredMethod(value.substring(hashIndex + 1, parenIndex), parameters);
+    method.setAccessible(true);
+    return method;
+  }
+
+  private Class<?> resolveClass(String name) throws ClassNotFoundException {
+    switch (name) {
+      case "boolean": return boolean.class;
+      case "byte": return byte.class;
+      case "short": return short.class;
+      case "char": return char.class;
+      case "int": return int.class;
+      case "long": return long.class;
+      case "float": return float.class;
+      case "double": return double.class;
+      default: return Class.forName(name, false, classLoader);
+    }
+  }
+
+  //////////////////////////////// Persistence ////////////////////////////////
+
+  private void load() {
+    if (!file.isFile())
+      return;
+
+    try (
+      Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)
+    ) {
+      entries.load(reader);
+    } catch (IOException e) {
+      entries.clear();
+    }
+
+    // Written for another server or plugin build, all entries are potentially stale
+    if (!key.equals(entries.getProperty(KEY_PROPERTY)))
+      entries.clear();
+  }
+
+  private void save() throws IOException {
+    File parent = file.getParentFile();
+
+    if (parent != null && !parent.isDirectory() && !parent.mkdirs())
+      throw new IOException("Could not create the directory " + parent);
+
+    entries.setProperty(KEY_PROPERTY, key);
+
+    try (
+      Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)
+    ) {
+      entries.store(writer, "Resolved reflection members, safe to delete");
+    }
+
+    dirty = false;
+  }
+
+  /**
+   * Fingerprints the jar a class has been loaded from by it's location, size and last
+   * modification time. Hashing the jar's contents would cost more than the scans saved.
+   */
+  private static String fingerprintJar(Class<?> type) {
+    try {
+      CodeSource source = type.getProtectionDomain().getCodeSource();
+      URL location = source == null ? null : source.getLocation();
+
+      if (location == null)
+        return "unknown";
+
+      File jar = new File(location.toURI());
+      String descriptor = jar.getAbsolutePath() + ":" + jar.length() + ":" + jar.lastModified();
+      return Integer.toHexString(descriptor.hashCode());
+    } catch (Exception e) {
+      return "unknown";
+    }
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 BlvckBytes
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package me.blvckbytes.animateditemplayground;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pools the short-lived buffers of rendering, which all die at the end of the tick they've
+ * been created in anyways: the string builders frames are serialized into and the scratch
+ * arrays of quantizing. Objects are handed out one after the other and all of them are taken
+ * back at once when the next tick begins, after which they're reset and handed out again. Pools
+ * grow to the peak demand of a tick and then stay at that size, so that steady rendering doesn't
+ * allocate these at all.
+ * <p>
+ * Nothing handed out may be referenced beyond the tick, which is why frames remember the
+ * epoch they've been rendered in and, with assertions enabled, fail when used afterwards.
+ * Instances are meant to be used by a single render thread.
+ */
+public class RenderArena {
+
+  private final List<StringBuilder> builders;
+  private final List<int[]> intArrays;
+
+  // Number of objects of each pool handed out within the current tick
+  private int builderCursor, intArrayCursor;
+
+  // Incremented on every tick, to tell whether an object has been handed out within the current one
+  private int epoch;
+
+  public RenderArena() {
+    this.builders = new ArrayList<>();
+    this.intArrays = new ArrayList<>();
+  }
+
+  /**
+   * Take back all objects handed out so far, which must no longer be referenced
+   */
+  public void beginTick() {
+    epoch++;
+    builderCursor = 0;
+    intArrayCursor = 0;
+  }
+
+  public int getEpoch() {
+    return epoch;
+  }
+
+  /**
+   * Check whether objects handed out within a given epoch are still valid, meant to be
+   * used as an assertion by holders of such objects, like {@code assert arena.isCurrent(epoch)}
+   * @param epoch Epoch the objects have been handed out in
+   * @return True if the tick of that epoch is still ongoing
+   */
+  public boolean isCurrent(int epoch) {
+    return this.epoch == epoch;
+  }
+
+  /**
+   * Get an empty string builder
+   * @return Pooled builder, valid until the next tick
+   */
+  public StringBuilder builder() {
+    if (builderCursor < builders.size()) {
+      StringBuilder result = builders.get(builderCursor++);
+      result.setLength(0);
+      return result;
+    }
+
+    StringBuilder result = new StringBuilder();
+    builders.add(result);
+    builderCursor++;
+    return result;
+  }
+
+  /**
+   * Get a scratch array of at least the requested length, with undefined contents
+   * @param minLength Minimum length of the array
+   * @return Pooled array, valid until the next tick
+   */
+  public int[] ints(int minLength) {
+    if (intArrayCursor < intArrays.size()) {
+      int[] result = intArrays.get(intArrayCursor);
+
+      // Replace arrays which are too small, so that the pool adapts to the largest demand
+      if (result.length < minLength) {
+        result = new int[minLength];
+        intArrays.set(intArrayCursor, result);
+      }
+
+      intArrayCursor++;
+      return result;
+    }
+
+    int[] result = new int[minLength];
+    intArrays.add(result);
+    intArrayCursor++;
+    return result;
+  }
+}
@@ -0,0 +1,222 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 BlvckBytes
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.blvckbytes.animateditemplayground;
+
+import com.google.gson.JsonObject;
+import net.md_5.bungee.api.chat.BaseComponent;
+import net.md_5.bungee.chat.ComponentSerializer;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.function.Function;
+
+/**
+ * A single frame of an animation, which renders it's JSON at most once per
+ * client capability and shares the result between all viewers of that class.
+ * Instances are meant to be used by a single render thread.
+ */
+public class RenderedFrame {
+
+  private final Function<ClientCapability, JsonObject> renderer;
+  private final @Nullable Function<ClientCapability, String> stringRenderer;
+  private final JsonObject[] jsons;
+  private final String[] jsonStrings;
+  private final int[] wireLengths;
+  private final BaseComponent[][] bungeeComponents;
+  private final String[] legacyTexts;
+
+  // Arena the frame renders from, which it must not outlive
+  private final @Nullable RenderArena arena;
+  private final int arenaEpoch;
+
+  /**
+   * Create a new frame which renders a component
+   * @param component Component to render
+   */
+  public RenderedFrame(IComponent component) {
+    this(capability -> component.toJson(capability.isApproximatingColors()));
+  }
+
+  /**
+   * Create a new frame which renders through a custom renderer
+   * @param renderer Renderer, invoked at most once per capability
+   */
+  public RenderedFrame(Function<ClientCapability, JsonObject> renderer) {
+    this(renderer, null);
+  }
+
+  /**
+   * Create a new frame which renders through a custom renderer and serializes through
+   * a dedicated string renderer, which has to produce exactly the serialized JSON
+   * @param renderer Renderer, invoked at most once per capability
+   * @param stringRenderer String renderer, invoked at most once per capability, null to serialize the JSON
+   */
+  public RenderedFrame(
+    Function<ClientCapability, JsonObject> renderer,
+    @Nullable Function<ClientCapability, String> stringRenderer
+  ) {
+    this(renderer, stringRenderer, null);
+  }
+
+  /**
+   * Create a new frame which renders through custom renderers, which take what they
+   * render from an arena, see {@link #RenderedFrame(Function, Function)}
+   * @param renderer Renderer, invoked at most once per capability
+   * @param stringRenderer String renderer, invoked at most once per capability, null to serialize the JSON
+   * @param arena Arena the renderers take from, null if they don't
+   */
+  public RenderedFrame(
+    Function<ClientCapability, JsonObject> renderer,
+    @Nullable Function<ClientCapability, String> stringRenderer,
+    @Nullable RenderArena arena
+  ) {
+    this.renderer = renderer;
+    this.arena = arena;
+    this.arenaEpoch = arena == null ? 0 : arena.getEpoch();
+    this.stringRenderer = stringRenderer;
+    this.jsons = new JsonObject[ClientCapability.values.length];
+    this.jsonStrings = new String[ClientCapability.values.length];
+    this.wireLengths = new int[ClientCapability.values.length];
+    this.bungeeComponents = new BaseComponent[ClientCapability.values.length][];
+    this.legacyTexts = new String[ClientCapability.values.length];
+  }
+
+  /**
+   * Get the frame's JSON representation for a given class of clients. The result
+   * is shared and thereby must not be mutated by the caller.
+   * @param capability Capability of the viewing clients
+   * @return JSON representation
+   */
+  public JsonObject getJson(ClientCapability capability) {
+    assert arena == null || arena.isCurrent(arenaEpoch) : "Frame rendered from an arena has been used after it's tick";
+
+    int index = capability.ordinal();
+
+    if (jsons[index] == null)
+      jsons[index] = renderer.apply(capability);
+
+    return jsons[index];
+  }
+
+  /**
+   * Get the frame's serialized JSON representation for a given class of clients
+   * @param capability Capability of the viewing clients
+   * @return Serialized JSON representation
+   */
+  public String getJsonString(ClientCapability capability) {
+    assert arena == null || arena.isCurrent(arenaEpoch) : "Frame rendered from an arena has been used after it's tick";
+
+    int index = capability.ordinal();
+
+    if (jsonStrings[index] == null)
+      jsonStrings[index] = stringRenderer == null ? getJson(capability).toString() : stringRenderer.apply(capability);
+
+    return jsonStrings[index];
+  }
+
+  /**
+   * Get the number of bytes the frame's serialized JSON representation for a given class of
+   * clients occupies on the wire, which is a VarInt byte-length followed by the UTF-8 bytes.
+   * The length is counted off the string, without encoding it.
+   * @param capability Capability of the viewing clients
+   * @return Number of bytes on the wire
+   */
+  public int getWireLength(ClientCapability capability) {
+    int index = capability.ordinal();
+
+    // Even an empty string occupies the byte of it's length, so zero marks an absent value
+    if (wireLengths[index] == 0) {
+      int utf8Length = utf8Length(getJsonString(capability));
+      wireLengths[index] = varIntLength(utf8Length) + utf8Length;
+    }
+
+    return wireLengths[index];
+  }
+
+  /**
+   * Get the frame as BungeeCord components for a given class of clients, as taken by the API's
+   * chat methods. The result is shared and thereby must not be mutated by the caller.
+   * @param capability Capability of the viewing clients
+   * @return Parsed components
+   */
+  public BaseComponent[] getBungeeComponents(ClientCapability capability) {
+    int index = capability.ordinal();
+
+    if (bungeeComponents[index] == null)
+      bungeeComponents[index] = ComponentSerializer.parse(getJsonString(capability));
+
+    return bungeeComponents[index];
+  }
+
+  /**
+   * Get the frame as legacy text for a given class of clients, with hex colors in the
+   * {@code §x§r§r§g§g§b§b} notation, as taken by API methods which only accept strings
+   * @param capability Capability of the viewing clients
+   * @return Legacy text
+   */
+  public String getLegacyText(ClientCapability capability) {
+    int index = capability.ordinal();
+
+    if (legacyTexts[index] == null)
+      legacyTexts[index] = BaseComponent.toLegacyText(getBungeeComponents(capability));
+
+    return legacyTexts[index];
+  }
+
+  /**
+   * Calculate the number of bytes a string occupies when encoded as UTF-8, where unpaired
+   * surrogates are replaced by a question mark, just like {@link String#getBytes} does
+   */
+  private static int utf8Length(String value) {
+    int result = 0;
+
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+
+      if (c < 0x80)
+        result += 1;
+      else if (c < 0x800)
+        result += 2;
+      else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+        result += 4;
+        i++;
+      }
+      else if (Character.isSurrogate(c))
+        result += 1;
+      else
+        result += 3;
+    }
+
+    return result;
+  }
+
+  private static int varIntLength(int value) {
+    // A VarInt encodes seven bits per byte, which caps an int at five bytes
+    for (int i = 1; i < 5; i++) {
+      if ((value & (-1 << (7 * i))) == 0)
+        return i;
+    }
+    return 5;
+  }
+}
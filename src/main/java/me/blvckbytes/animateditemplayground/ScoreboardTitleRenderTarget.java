@@ -0,0 +1,111 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 BlvckBytes
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package me.blvckbytes.animateditemplayground;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scoreboard.DisplaySlot;
+import org.bukkit.scoreboard.Objective;
+import org.bukkit.scoreboard.Scoreboard;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shows frames as the title of a sidebar objective on a scoreboard of each player's own.
+ * <p>
+ * Scoreboards may only be created on the main thread, which is why a player's scoreboard
+ * is set up by a task on the main thread when they're first shown a frame, while all frames
+ * until it's ready are dropped. Titles are limited to {@link #MAX_TITLE_LENGTH} characters of
+ * legacy text, where each hex colored character takes up at least 15 of them, so longer titles
+ * are fitted by a {@link LegacyTextFitter}. The bold default item name keeps six colored
+ * segments of it's gradient for any player name. Titles which can't be fitted are dropped.
+ */
+public class ScoreboardTitleRenderTarget implements IRenderTarget {
+
+  public static final int MAX_TITLE_LENGTH = 128;
+
+  private static final String OBJECTIVE_NAME = "animated_title";
+  private static final String OBJECTIVE_CRITERIA = "dummy";
+
+  private final Plugin plugin;
+  private final LegacyTextFitter fitter;
+  private final Map<UUID, Objective> objectives;
+
+  // Players whose scoreboard is being set up on the main thread
+  private final Set<UUID> pendingSetups;
+
+  public ScoreboardTitleRenderTarget(Plugin plugin) {
+    this.plugin = plugin;
+    this.fitter = new LegacyTextFitter();
+    this.objectives = new ConcurrentHashMap<>();
+    this.pendingSetups = ConcurrentHashMap.newKeySet();
+  }
+
+  @Override
+  public void show(Player player, RenderedFrame frame, ClientCapability capability) {
+    String title = fitter.fit(frame, capability, MAX_TITLE_LENGTH);
+
+    if (title == null)
+      return;
+
+    Objective objective = objectives.get(player.getUniqueId());
+
+    if (objective != null) {
+      objective.setDisplayName(title);
+      return;
+    }
+
+    if (!pendingSetups.add(player.getUniqueId()))
+      return;
+
+    Bukkit.getScheduler().runTask(plugin, () -> {
+      // Quit before the task came around
+      if (!pendingSetups.remove(player.getUniqueId()) || !player.isOnline())
+        return;
+
+      Scoreboard scoreboard = Bukkit.getScoreboardManager().getNewScoreboard();
+      Objective created = scoreboard.registerNewObjective(OBJECTIVE_NAME, OBJECTIVE_CRITERIA, title);
+      created.setDisplaySlot(DisplaySlot.SIDEBAR);
+      player.setScoreboard(scoreboard);
+
+      objectives.put(player.getUniqueId(), created);
+    });
+  }
+
+  @Override
+  public void clear(Player player) {
+    pendingSetups.remove(player.getUniqueId());
+    Objective objective = objectives.remove(player.getUniqueId());
+
+    // Hand the player back to the main scoreboard, unless they've been moved on since
+    if (objective != null && player.getScoreboard() == objective.getScoreboard())
+      player.setScoreboard(Bukkit.getScoreboardManager().getMainScoreboard());
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 BlvckBytes
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.blvckbytes.animateditemplayground;
+
+/**
+ * The sweep of the name's center stop, which moves by a fixed step per frame and bounces
+ * back and forth between two edges. Shared by {@link AnimatedItemTest} and the
+ * {@link AnimationSimulator}, so that the simulator measures the plugin's actual animation.
+ */
+public class SweepAnimation {
+
+  public static final double STEP_SIZE = 0.03, EDGE_STOP = .12;
+
+  // A whole cycle travels between both edges and back
+  public static final long CYCLE_TICKS = Math.round(2 * (1 - 2 * EDGE_STOP) / STEP_SIZE);
+
+  private SweepAnimation() {}
+
+  /**
+   * Get the direction to take the next step in, which turns around once an edge has been reached
+   * @param phase Current phase
+   * @param direction Current direction, either {@link AnimationStateStore#FORWARDS} or {@link AnimationStateStore#BACKWARDS}
+   * @return Direction of the next step
+   */
+  public static byte turn(double phase, byte direction) {
+    if (direction == AnimationStateStore.FORWARDS && phase + EDGE_STOP >= 1)
+      return AnimationStateStore.BACKWARDS;
+
+    if (direction == AnimationStateStore.BACKWARDS && phase - EDGE_STOP <= 0)
+      return AnimationStateStore.FORWARDS;
+
+    return direction;
+  }
+
+  /**
+   * Take a single step
+   * @param phase Current phase
+   * @param direction Direction to step in, as decided by {@link #turn(double, byte)}
+   * @return Phase after the step
+   */
+  public static double step(double phase, byte direction) {
+    return phase + STEP_SIZE * direction;
+  }
+
+  /**
+   * Get the phase at a tick of a shared clock, which starts out at the center
+   * moving forwards and bounces back and forth between the edges, just like stepping does
+   * @param tick Tick to get the phase at
+   * @return Phase at that tick
+   */
+  public static double phaseAt(long tick) {
+    double low = EDGE_STOP, span = 1 - 2 * EDGE_STOP;
+
+    // Distance travelled within the current cycle, which covers the span twice
+    double travelled = (.5 - low + tick * STEP_SIZE) % (2 * span);
+
+    return low + (travelled <= span ? travelled : 2 * span - travelled);
+  }
+}
@@ -26,7 +26,6 @@ package me.blvckbytes.animateditemplayground;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
-import lombok.AllArgsConstructor;
 import lombok.Getter;
 import org.bukkit.ChatColor;
 import org.jetbrains.annotations.Nullable;
@@ -40,8 +39,15 @@ public class TextComponent implements IComponent {
 
   private static final Map<ChatColor, Color> vanillaColors;
 
+  // Lowercase names of all chat colors, indexed by their ordinal
+  private static final String[] APPROXIMATED_NAMES;
+
   static {
     vanillaColors = generateVanillaColors();
+
+    APPROXIMATED_NAMES = new String[ChatColor.values().length];
+    for (ChatColor color : ChatColor.values())
+      APPROXIMATED_NAMES[color.ordinal()] = color.name().toLowerCase();
   }
 
   private final @Nullable String text;
@@ -88,7 +94,7 @@ public class TextComponent implements IComponent {
    * @param color Color of the component, optional
    * @param formatting Formatting modes
    */
-  private TextComponent(@Nullable String text, @Nullable String color, boolean[] formatting) {
+  TextComponent(@Nullable String text, @Nullable String color, boolean[] formatting) {
     this(text, color);
 
     // Copy into the local array to avoid mutability
@@ -165,7 +171,7 @@ public class TextComponent implements IComponent {
    * @param action Action to be executed
    * @param value Action value
    */
-  public void setHover(HoverAction action, TextComponent value) {
+  public void setHover(HoverAction action, IComponent value) {
     this.hoverAction = action;
     this.hoverValue = value;
   }
@@ -182,6 +188,25 @@ public class TextComponent implements IComponent {
 
   @Override
   public JsonObject toJson(boolean approximateColors) {
+    PipelineEvents.ToJson event = new PipelineEvents.ToJson();
+    event.begin();
+
+    JsonObject res = toJsonInternal(approximateColors);
+
+    if (event.shouldCommit()) {
+      event.siblingCount = siblings.size();
+      event.approximateColors = approximateColors;
+      event.commit();
+    }
+
+    return res;
+  }
+
+  /**
+   * Transforms this component without emitting an event, which
+   * is only emitted once for the whole tree by {@link #toJson}
+   */
+  private JsonObject toJsonInternal(boolean approximateColors) {
     JsonObject res = new JsonObject();
 
     // Set text
@@ -199,7 +224,7 @@ public class TextComponent implements IComponent {
     if (this.hoverAction != null && this.hoverValue != null) {
       JsonObject action = new JsonObject();
       action.addProperty("action", this.hoverAction.name().toLowerCase());
-      action.add("value", this.hoverValue.toJson(approximateColors));
+      action.add("value", toJsonInternal(this.hoverValue, approximateColors));
       res.add("hoverEvent", action);
     }
 
@@ -224,13 +249,19 @@ public class TextComponent implements IComponent {
     // Append all siblings
     if (siblings.size() > 0) {
       JsonArray extra = new JsonArray();
-      siblings.forEach(s -> extra.add(s.toJson(approximateColors)));
+      siblings.forEach(s -> extra.add(toJsonInternal(s, approximateColors)));
       res.add("extra", extra);
     }
 
     return res;
   }
 
+  private static JsonObject toJsonInternal(IComponent component, boolean approximateColors) {
+    if (component instanceof TextComponent)
+      return ((TextComponent) component).toJsonInternal(approximateColors);
+    return component.toJson(approximateColors);
+  }
+
   @Override
   public String toPlainText() {
     StringBuilder sb = new StringBuilder();
@@ -264,188 +295,151 @@ public class TextComponent implements IComponent {
   /////////////////////////////////// Parsing //////////////////////////////////
 
   /**
-   * State content wrapper utility used while parsing
+   * Visitor which builds a component tree from the tokens of legacy formatted text
    */
-  @AllArgsConstructor
-  private static class ChildContentState {
-    StringBuilder value;
-    String color;
-    List<GradientPoint> gradient;
-    boolean[] fmts;
-
-    private static ChildContentState makeDefault() {
-      return new ChildContentState(
-        new StringBuilder(), null, null,
-        new boolean[TextFormatting.values.length]
-      );
+  private static class ComponentTreeBuilder implements ILegacyTextVisitor {
+
+    // Head component, when splitting, a new sibling is appended to it
+    private final TextComponent head;
+    private final @Nullable GradientGenerator gradientGenerator;
+
+    // Child content state
+    private final StringBuilder value;
+    private final boolean[] fmts;
+    private @Nullable String color;
+    private int packedColor;
+    private @Nullable CompiledGradient gradient;
+
+    private ComponentTreeBuilder(@Nullable GradientGenerator gradientGenerator) {
+      this.head = new TextComponent(null);
+      this.gradientGenerator = gradientGenerator;
+      this.value = new StringBuilder();
+      this.fmts = new boolean[TextFormatting.values.length];
     }
-  }
 
-  /**
-   * Parses a new TextComponent from a string of text by creating new
-   * sub-components to express hex-color notations as required. Vanilla
-   * notation will be kept in one component as much as possible.
-   * @param text Text to parse
-   * @param gradientGenerator Gradient generator ref for generating gradients from gradient notation, optional
-   * @return Parsed component
-   */
-  public static TextComponent parseFromText(String text, @Nullable GradientGenerator gradientGenerator) {
+    @Override
+    public void onText(CharSequence input, int begin, int end) {
+      value.append(input, begin, end);
+    }
 
-    // Quick exit: Does not contain any hex colors
-    if (!(text.contains("§#") || text.contains("§<")))
-      return new TextComponent(text);
+    @Override
+    public void onHexColor(int color, CharSequence input, int begin, int end) {
+      pushAndReset(true);
 
-    // Head component, when splitting, a new sibling is appended to it
-    TextComponent head = new TextComponent(null);
-    ChildContentState state = ChildContentState.makeDefault();
+      // Keep the notation as written, skipping the section sign
+      this.color = input.subSequence(begin + 1, end).toString();
+      this.packedColor = color;
+    }
 
-    // Iterate text char by char
-    char[] chars = text.toCharArray();
-    for (int i = 0; i < chars.length; i++) {
-      char c = chars[i];
+    @Override
+    public void onGradient(CompiledGradient gradient, CharSequence input, int begin, int end) {
+      pushAndReset(true);
+      this.gradient = gradient;
+    }
 
-      // Not a special notation (or the last char), keep on collecting
-      if (c != '§' || i == chars.length - 1) {
-        state.value.append(c);
-        continue;
+    @Override
+    public void onFormatting(TextFormatting formatting, CharSequence input, int begin, int end) {
+      // Formatting without a cached color stays within the text as is
+      if (color == null && gradient == null) {
+        value.append(input, begin, end);
+        return;
       }
 
-      int charsLeft = chars.length - 1 - i;
-      char n = chars[i + 1];
-
-      // HEX color notation, supporting only #RRGGBB
-      // 6 + 1 as the next char (n) is the #
-      if (n == '#' && charsLeft >= (6 + 1)) {
-        // Hex-characters: [0-9A-Fa-f]
-
-        StringBuilder hex = new StringBuilder("#");
+      // Push with current formatting and leave color in buffer
+      pushAndReset(false);
+      fmts[formatting.ordinal()] = true;
+    }
 
-        // Try to match up to 6 and skip early if a char is invalid
-        for (int j = 0; j < 6; j++) {
-          char jc = chars[i + 2 + j];
+    @Override
+    public void onLegacyColor(char code, CharSequence input, int begin, int end) {
+      // A vanilla color change ends the stashed color's reach
+      if (color != null || gradient != null)
+        pushAndReset(true);
 
-          // Cannot possibly be a valid notation
-          if (!(
-            (jc >= '0' && jc <= '9') || // Numbers
-            (jc >= 'A' && jc <= 'F') || // Uppercase A-F
-            (jc >= 'a' && jc <= 'f')    // Lowerface a-f
-          )) {
-            hex = null;
-            break;
-          }
+      // Leave special sequence as is
+      value.append(input, begin, end);
+    }
 
-          hex.append(jc);
-        }
+    /**
+     * Push the remainder and get the resulting head
+     */
+    private TextComponent finish() {
+      pushAndReset(false);
+      return head;
+    }
 
-        // Not a valid hex-color, leave § unappended and continue
-        if (hex == null)
-          continue;
+    /**
+     * Push a new sibling component to the head using the current value and properties and
+     * then reset the value builder as well as the state's properties, if requested
+     * @param resetProperties Whether to reset all properties as well
+     */
+    private void pushAndReset(boolean resetProperties) {
 
-        pushAndReset(state, head, gradientGenerator, true);
-        state.color = hex.toString();
+      // Don't push empty components
+      if (value.length() > 0) {
+        // Add a gradient component if a gradient is available
+        if (gradient != null && gradientGenerator != null) {
+          TextComponent gradientComp = gradientGenerator.gradientize(value.toString(), gradient);
 
-        // Skip #RRGGBB
-        i += 7;
-        continue;
-      }
+          // Also apply formatting flags
+          System.arraycopy(fmts, 0, gradientComp.formatting, 0, fmts.length);
 
-      // Could be a gradient notation
-      if (n == '<' && gradientGenerator != null) {
-        // Find the next closing bracket
-        int closeInd = text.indexOf('>', i + 1);
-
-        // Bracket available
-        if (closeInd > 0) {
-          // Grab the possible notation, including brackets, and try to parse it
-          List<GradientPoint> gradient = gradientGenerator.parseGradientNotation(
-            text.substring(i + 1, closeInd + 1)
-          ).orElse(null);
-
-          // Was a gradient notation, push, store gradient and jump ahead
-          if (gradient != null) {
-            pushAndReset(state, head, gradientGenerator, true);
-            state.gradient = gradient;
-            i = closeInd;
-            continue;
-          }
+          head.siblings.add(gradientComp);
         }
-      }
-
-      TextFormatting fmt = TextFormatting.getByChar(n);
-
-      // Check if it's a text formatting sequence while caching a color
-      if (fmt != null && (state.color != null || state.gradient != null)) {
 
-        // Push with current formatting and leave color in buffer
-        pushAndReset(state, head, gradientGenerator, false);
+        // Add a leaf span, unless the color's notation would not survive being packed
+        else if (color == null || color.equals(HexColorEncoder.toString(packedColor)))
+          head.siblings.add(new TextSpan(value.toString(), color == null ? TextSpan.NO_COLOR : packedColor, TextSpan.formattingMask(fmts)));
 
-        // Update formattings
-        state.fmts[fmt.ordinal()] = true;
+        // Add a colored component
+        else
+          head.siblings.add(new TextComponent(value.toString(), color, fmts));
 
-        // Skip this formatting character within the message
-        i++;
-        continue;
+        value.setLength(0);
       }
 
-      if (
-        // Vanilla color change occurred
-        ((n >= '0' && n <= '9') || (n >= 'a' && n <= 'f') || n == 'r') &&
-        // And there is a color stashed to be applied on sb's content
-        (state.color != null || state.gradient != null)
-      )
-        pushAndReset(state, head, gradientGenerator, true);
-
-      // Leave special sequence as is
-      state.value.append(c);
+      // Reset the child content state
+      if (resetProperties) {
+        Arrays.fill(fmts, false);
+        color = null;
+        gradient = null;
+      }
     }
-
-    // Add remainder
-    if (state.value.length() > 0)
-      pushAndReset(state, head, gradientGenerator, false);
-
-    return head;
   }
 
   /**
-   * Push a new sibling component to the head using the current value and properties and
-   * then reset the value builder as well as the state's properties, if requested
-   * @param state Child content state wrapper
-   * @param head Head component ref
+   * Parses a new TextComponent from a string of text by creating new
+   * sub-components to express hex-color notations as required. Vanilla
+   * notation will be kept in one component as much as possible.
+   * @param text Text to parse
    * @param gradientGenerator Gradient generator ref for generating gradients from gradient notation, optional
-   * @param resetProperties Whether to reset all properties as well
+   * @return Parsed component
    */
-  private static void pushAndReset(
-    ChildContentState state,
-    TextComponent head,
-    @Nullable GradientGenerator gradientGenerator,
-    boolean resetProperties
-  ) {
-
-    // Don't push empty components
-    if (state.value.length() > 0) {
-      // Add a gradient component if a gradient is available
-      if (state.gradient != null && gradientGenerator != null) {
-        TextComponent gradientComp = gradientGenerator.gradientize(state.value.toString(), state.gradient);
-
-        // Also apply formatting flags
-        System.arraycopy(state.fmts, 0, gradientComp.formatting, 0, state.fmts.length);
-
-        head.siblings.add(gradientComp);
-      }
+  public static TextComponent parseFromText(String text, @Nullable GradientGenerator gradientGenerator) {
+    PipelineEvents.ParseFromText event = new PipelineEvents.ParseFromText();
+    event.begin();
+
+    TextComponent result;
+    boolean quickExit = !(text.contains("§#") || text.contains("§<"));
 
-      // Add a colored component
-      else
-        head.siblings.add(new TextComponent(state.value.toString(), state.color, state.fmts));
+    // Quick exit: Does not contain any hex colors
+    if (quickExit)
+      result = new TextComponent(text);
 
-      state.value.setLength(0);
+    else {
+      ComponentTreeBuilder builder = new ComponentTreeBuilder(gradientGenerator);
+      new LegacyTextTokenizer(gradientGenerator != null).tokenize(text, builder);
+      result = builder.finish();
     }
 
-    // Reset the child content state
-    if (resetProperties) {
-      Arrays.fill(state.fmts, false);
-      state.color = null;
-      state.gradient = null;
+    if (event.shouldCommit()) {
+      event.textLength = text.length();
+      event.parseGradients = gradientGenerator != null;
+      event.quickExit = quickExit;
+      event.commit();
     }
+
+    return result;
   }
 
   ///////////////////////////// Color Approximation ////////////////////////////
@@ -542,12 +536,21 @@ public class TextComponent implements IComponent {
     }
   }
 
+  /**
+   * Approximate a packed color by the closest chat color
+   * @param color Color, packed as 0xRRGGBB
+   * @return Closest matching chat color's name
+   */
+  static String approximateColor(int color) {
+    return APPROXIMATED_NAMES[findClosestMatch(new Color(color)).ordinal()];
+  }
+
   /**
    * Translate any given color if it's a hex color and approximation mode is enabled
    * @param color Color to translate
    * @return Translated color, if applicable
    */
-  private static @Nullable String translateColor(@Nullable String color) {
+  static @Nullable String translateColor(@Nullable String color) {
     // Pass through null values
     if (color == null)
       return null;
@@ -28,9 +28,6 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.HashMap;
-import java.util.Map;
-
 @Getter
 @AllArgsConstructor
 public enum TextFormatting {
@@ -46,14 +43,18 @@ public enum TextFormatting {
 
   public static final TextFormatting[] values = values();
 
-  // Mapping marking characters to enum constants for quick access
-  private static final Map<Character, TextFormatting> lut;
+  // Mapping marking characters to enum constants for quick access, indexed by the character
+  private static final TextFormatting[] lut;
 
   static {
     // Initialize the lookup table on all available values
-    lut = new HashMap<>();
+    char maxMarker = 0;
+    for (TextFormatting fmt : values)
+      maxMarker = (char) Math.max(maxMarker, fmt.getMarker());
+
+    lut = new TextFormatting[maxMarker + 1];
     for (TextFormatting fmt : values)
-      lut.put(fmt.getMarker(), fmt);
+      lut[fmt.getMarker()] = fmt;
   }
 
   /**
@@ -62,6 +63,6 @@ public enum TextFormatting {
    * @return Text formatting constant or null if the char is unknown
    */
   public static @Nullable TextFormatting getByChar(char c) {
-    return lut.get(c);
+    return c < lut.length ? lut[c] : null;
   }
 }
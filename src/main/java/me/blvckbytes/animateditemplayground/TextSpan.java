@@ -0,0 +1,159 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 BlvckBytes
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.blvckbytes.animateditemplayground;
+
+import com.google.gson.JsonObject;
+import lombok.Getter;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A leaf component for a run of uniformly styled text, which keeps it's formatting as a
+ * bitmask and it's color in packed form, without any siblings, click- or hover-actions.
+ * Renders exactly like a {@link TextComponent} with the same text, hex color and formatting.
+ */
+@Getter
+public class TextSpan implements IComponent {
+
+  // Marks the absence of a color, as packed colors are never negative
+  public static final int NO_COLOR = -1;
+
+  // JSON keys of all formatting flags, indexed by their ordinal
+  private static final String[] FORMATTING_KEYS = new String[TextFormatting.values.length];
+
+  static {
+    for (TextFormatting fmt : TextFormatting.values)
+      FORMATTING_KEYS[fmt.ordinal()] = fmt.name().toLowerCase();
+  }
+
+  private final String text;
+
+  // Packed as 0xRRGGBB, or NO_COLOR
+  private final int color;
+
+  // Bit n is set if the formatting of ordinal n is enabled
+  private final int formatting;
+
+  // Color encoded as #rrggbb ahead of time, null to encode it when rendering
+  private final @Nullable String hexColor;
+
+  /**
+   * Create a new span without any formatting
+   * @param text Text of the span
+   * @param color Color, packed as 0xRRGGBB, or NO_COLOR
+   */
+  public TextSpan(String text, int color) {
+    this(text, color, 0);
+  }
+
+  /**
+   * Create a new span
+   * @param text Text of the span
+   * @param color Color, packed as 0xRRGGBB, or NO_COLOR
+   * @param formatting Formatting bitmask, see {@link #formattingMask(boolean[])}
+   */
+  public TextSpan(String text, int color, int formatting) {
+    this(text, color, formatting, null);
+  }
+
+  /**
+   * Create a new span with a color which has already been encoded
+   * @param text Text of the span
+   * @param color Color, packed as 0xRRGGBB, or NO_COLOR
+   * @param formatting Formatting bitmask, see {@link #formattingMask(boolean[])}
+   * @param hexColor The color encoded by {@link HexColorEncoder}, null to encode it when rendering
+   */
+  public TextSpan(String text, int color, int formatting, @Nullable String hexColor) {
+    this.text = text;
+    this.color = color;
+    this.formatting = formatting;
+    this.hexColor = hexColor;
+  }
+
+  public boolean hasColor() {
+    return color != NO_COLOR;
+  }
+
+  public boolean hasFormatting(TextFormatting formatting) {
+    return (this.formatting & (1 << formatting.ordinal())) != 0;
+  }
+
+  /**
+   * Convert formatting flags, indexed by their ordinal, into a bitmask
+   * @param formatting Formatting flags
+   * @return Bitmask, where bit n is set if the flag at index n is set
+   */
+  public static int formattingMask(boolean[] formatting) {
+    int result = 0;
+
+    for (int i = 0; i < formatting.length; i++) {
+      if (formatting[i])
+        result |= 1 << i;
+    }
+
+    return result;
+  }
+
+  @Override
+  public JsonObject toJson(boolean approximateColors) {
+    JsonObject res = new JsonObject();
+
+    res.addProperty("text", text);
+
+    if (color != NO_COLOR) {
+      if (approximateColors)
+        res.addProperty("color", TextComponent.approximateColor(color));
+      else
+        res.addProperty("color", hexColor != null ? hexColor : HexColorEncoder.toString(color));
+    }
+
+    for (int i = 0; i < FORMATTING_KEYS.length; i++) {
+      if ((formatting & (1 << i)) != 0)
+        res.addProperty(FORMATTING_KEYS[i], true);
+    }
+
+    return res;
+  }
+
+  @Override
+  public String toPlainText() {
+    StringBuilder sb = new StringBuilder();
+
+    // Append only approximated colors, just like text components do
+    if (color != NO_COLOR)
+      sb.append(TextComponent.approximateColor(color));
+
+    for (int i = 0; i < TextFormatting.values.length; i++) {
+      if ((formatting & (1 << i)) != 0)
+        sb.append("§").append(TextFormatting.values[i].getMarker());
+    }
+
+    return sb.append(text).toString();
+  }
+
+  @Override
+  public String toString() {
+    return toJson(false).toString();
+  }
+}
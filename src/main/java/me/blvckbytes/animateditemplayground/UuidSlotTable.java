@@ -0,0 +1,185 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 BlvckBytes
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.blvckbytes.animateditemplayground;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Maps UUIDs to non-negative slots through open addressing with linear probing, keeping
+ * both halves of each key and it's slot in parallel primitive arrays. Looking a player up
+ * thereby neither boxes the slot nor chases entry nodes, and keys aren't retained as objects.
+ * <p>
+ * Removals shift the following entries of their probe sequence back, so that no tombstones
+ * accumulate. Instances are not thread-safe.
+ */
+public class UuidSlotTable {
+
+  public static final int NO_SLOT = -1;
+
+  private static final int MIN_CAPACITY = 16;
+
+  private long[] mostBits, leastBits;
+
+  // Slot of each bucket, NO_SLOT if the bucket is empty
+  private int[] slots;
+
+  private int mask, size;
+
+  public UuidSlotTable() {
+    this(MIN_CAPACITY / 2);
+  }
+
+  /**
+   * Create a new table with room for a given number of entries before it has to grow
+   * @param expectedSize Number of entries to reserve space for
+   */
+  public UuidSlotTable(int expectedSize) {
+    int capacity = MIN_CAPACITY;
+
+    // Kept at most half full, as probe sequences grow quickly beyond that
+    while (capacity < expectedSize * 2)
+      capacity *= 2;
+
+    allocate(capacity);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Get the slot of a key
+   * @param key Key to look up
+   * @return Slot, NO_SLOT if the key is absent
+   */
+  public int get(UUID key) {
+    int bucket = find(key.getMostSignificantBits(), key.getLeastSignificantBits());
+    return bucket < 0 ? NO_SLOT : slots[bucket];
+  }
+
+  /**
+   * Map a key to a slot, replacing any slot it has been mapped to before
+   * @param key Key to map
+   * @param slot Slot to map to, which has to be non-negative
+   */
+  public void put(UUID key, int slot) {
+    if (slot < 0)
+      throw new IllegalArgumentException("Slots have to be non-negative, got " + slot);
+
+    long most = key.getMostSignificantBits(), least = key.getLeastSignificantBits();
+    int bucket = find(most, least);
+
+    if (bucket >= 0) {
+      slots[bucket] = slot;
+      return;
+    }
+
+    if ((size + 1) * 2 > slots.length)
+      rehash(slots.length * 2);
+
+    insert(most, least, slot);
+    size++;
+  }
+
+  /**
+   * Remove a key's mapping
+   * @param key Key to remove
+   * @return Slot the key has been mapped to, NO_SLOT if it was absent
+   */
+  public int remove(UUID key) {
+    int hole = find(key.getMostSignificantBits(), key.getLeastSignificantBits());
+
+    if (hole < 0)
+      return NO_SLOT;
+
+    int result = slots[hole];
+
+    // Move entries which probed past the hole back into it, until an empty bucket ends the sequence
+    for (int bucket = (hole + 1) & mask; slots[bucket] != NO_SLOT; bucket = (bucket + 1) & mask) {
+      int home = home(mostBits[bucket], leastBits[bucket]);
+
+      // The entry may only move if it's home isn't cyclically within (hole, bucket]
+      if (((bucket - home) & mask) < ((bucket - hole) & mask))
+        continue;
+
+      mostBits[hole] = mostBits[bucket];
+      leastBits[hole] = leastBits[bucket];
+      slots[hole] = slots[bucket];
+      hole = bucket;
+    }
+
+    slots[hole] = NO_SLOT;
+    size--;
+    return result;
+  }
+
+  private int find(long most, long least) {
+    for (int bucket = home(most, least); slots[bucket] != NO_SLOT; bucket = (bucket + 1) & mask) {
+      if (mostBits[bucket] == most && leastBits[bucket] == least)
+        return bucket;
+    }
+
+    return -1;
+  }
+
+  private void insert(long most, long least, int slot) {
+    int bucket = home(most, least);
+
+    while (slots[bucket] != NO_SLOT)
+      bucket = (bucket + 1) & mask;
+
+    mostBits[bucket] = most;
+    leastBits[bucket] = least;
+    slots[bucket] = slot;
+  }
+
+  private int home(long most, long least) {
+    // Mix both halves, so that the upper bits taken as the bucket depend on all of the key
+    long hash = (most ^ least) * 0x9E3779B97F4A7C15L;
+    return (int) (hash >>> 32) & mask;
+  }
+
+  private void rehash(int capacity) {
+    long[] oldMostBits = mostBits, oldLeastBits = leastBits;
+    int[] oldSlots = slots;
+
+    allocate(capacity);
+
+    for (int i = 0; i < oldSlots.length; i++) {
+      if (oldSlots[i] != NO_SLOT)
+        insert(oldMostBits[i], oldLeastBits[i], oldSlots[i]);
+    }
+  }
+
+  private void allocate(int capacity) {
+    this.mostBits = new long[capacity];
+    this.leastBits = new long[capacity];
+    this.slots = new int[capacity];
+    this.mask = capacity - 1;
+
+    Arrays.fill(slots, NO_SLOT);
+  }
+}
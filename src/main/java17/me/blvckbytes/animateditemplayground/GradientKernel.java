@@ -0,0 +1,94 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 BlvckBytes
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.blvckbytes.animateditemplayground;
+
+/**
+ * Innermost loop of sampling gradients, which linearly interpolates runs of characters
+ * between two stops in sRGB. This version is picked from the multi-release jar on Java 17
+ * and above, and hands longer runs to the Vector API if the server has been started with
+ * {@code --add-modules jdk.incubator.vector -Danimateditemplayground.vectorize=true},
+ * falling back to the scalar loop otherwise.
+ * <p>
+ * Vectorizing is opt-in, as the double to int lane conversions of the incubating API
+ * outweighed the gains of the vectorized arithmetic on the JDK 17 builds measured so far.
+ */
+final class GradientKernel {
+
+  // The incubator module is not resolved by default, linking against it would fail otherwise
+  private static final boolean VECTORIZED = (
+    Boolean.getBoolean("animateditemplayground.vectorize") &&
+    ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+  );
+
+  private GradientKernel() {}
+
+  /**
+   * Interpolate between two packed colors
+   * @param colorA Color at zero percent
+   * @param colorB Color at one hundred percent
+   * @param percentage Percentage between the two colors
+   * @return Interpolated color, packed as 0xRRGGBB
+   */
+  static int interpolateSrgb(int colorA, int colorB, double percentage) {
+    int redA = (colorA >> 16) & 0xFF, greenA = (colorA >> 8) & 0xFF, blueA = colorA & 0xFF;
+
+    // Linearly interpolate and floor, as all channels are positive, truncation equals flooring
+    int red   = (int) (redA   + percentage * (((colorB >> 16) & 0xFF) - redA));
+    int green = (int) (greenA + percentage * (((colorB >> 8) & 0xFF) - greenA));
+    int blue  = (int) (blueA  + percentage * ((colorB & 0xFF) - blueA));
+
+    return (red << 16) | (green << 8) | blue;
+  }
+
+  /**
+   * Interpolate a run of characters, where character i is at {@code (i + 1) / length}
+   * @param target Array to write the packed colors into
+   * @param targetOffset Index within the target to write the color of the first character at
+   * @param from Index of the first character, inclusive
+   * @param to Index of the last character, exclusive
+   * @param length Length of the whole text
+   * @param offsetA Offset of the stop below
+   * @param offsetB Offset of the stop above
+   * @param colorA Color of the stop below
+   * @param colorB Color of the stop above
+   */
+  static void interpolateSrgb(
+    int[] target, int targetOffset,
+    int from, int to, int length,
+    double offsetA, double offsetB,
+    int colorA, int colorB
+  ) {
+    int i = from;
+
+    if (VECTORIZED)
+      i = VectorGradientKernel.interpolateSrgb(target, targetOffset, from, to, length, offsetA, offsetB, colorA, colorB);
+
+    // Scalar tail, or the whole run if vectors are not available
+    double span = offsetB - offsetA;
+
+    for (; i < to; i++)
+      target[targetOffset + i - from] = interpolateSrgb(colorA, colorB, ((i + 1D) / length - offsetA) / span);
+  }
+}
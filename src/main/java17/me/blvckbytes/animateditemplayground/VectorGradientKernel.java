@@ -0,0 +1,93 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 BlvckBytes
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.blvckbytes.animateditemplayground;
+
+import jdk.incubator.vector.*;
+
+/**
+ * Vectorized sRGB interpolation, performing exactly the same IEEE operations in the
+ * same order as the scalar loop per lane, which thereby yields identical colors.
+ * Only ever loaded if the incubator module has been resolved at startup.
+ */
+final class VectorGradientKernel {
+
+  private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+
+  // Integer lanes matching the number of double lanes, which are half as wide
+  private static final VectorSpecies<Integer> INTS = VectorSpecies.of(
+    int.class, VectorShape.forBitSize(Math.max(64, DOUBLES.vectorBitSize() / 2))
+  );
+
+  private VectorGradientKernel() {}
+
+  /**
+   * Interpolate as many full vectors of characters of a run as possible
+   * @return Index of the first character which has not been interpolated
+   */
+  static int interpolateSrgb(
+    int[] target, int targetOffset,
+    int from, int to, int length,
+    double offsetA, double offsetB,
+    int colorA, int colorB
+  ) {
+    int lanes = DOUBLES.length();
+
+    // Shapes which can't be paired up lane by lane are left to the scalar loop
+    if (INTS.length() != lanes)
+      return from;
+
+    int redA = (colorA >> 16) & 0xFF, greenA = (colorA >> 8) & 0xFF, blueA = colorA & 0xFF;
+    double redDelta   = ((colorB >> 16) & 0xFF) - redA;
+    double greenDelta = ((colorB >> 8) & 0xFF) - greenA;
+    double blueDelta  = (colorB & 0xFF) - blueA;
+
+    double span = offsetB - offsetA;
+    DoubleVector laneIndices = DoubleVector.broadcast(DOUBLES, 0).addIndex(1);
+
+    int i = from;
+    for (int bound = from + DOUBLES.loopBound(to - from); i < bound; i += lanes) {
+      // ((i + 1D) / length - offsetA) / span, per lane
+      DoubleVector percentage = laneIndices.add(i + 1D).div(length).sub(offsetA).div(span);
+
+      // Converting to longs keeps the shape, so that only the packed result needs to be narrowed
+      LongVector red   = toLong(percentage.mul(redDelta).add(redA));
+      LongVector green = toLong(percentage.mul(greenDelta).add(greenA));
+      LongVector blue  = toLong(percentage.mul(blueDelta).add(blueA));
+
+      LongVector packed = red.lanewise(VectorOperators.LSHL, 16)
+        .or(green.lanewise(VectorOperators.LSHL, 8))
+        .or(blue);
+
+      ((IntVector) packed.convertShape(VectorOperators.L2I, INTS, 0)).intoArray(target, targetOffset + i - from);
+    }
+
+    return i;
+  }
+
+  private static LongVector toLong(DoubleVector value) {
+    // Conversions truncate towards zero, just like casting does
+    return (LongVector) value.convert(VectorOperators.D2L, 0);
+  }
+}